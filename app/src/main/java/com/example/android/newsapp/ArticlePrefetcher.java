@@ -0,0 +1,99 @@
+package com.example.android.newsapp;
+
+import android.arch.lifecycle.Observer;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Background prefetch of article bodies of the visible rows, so the reader opens
+ * them instantly and offline.
+ * <p>
+ * Runs only on unmetered networks, one article at a time at
+ * {@link FeedRepository#PRIORITY_ARTICLE} on its own thread, which is rejected while
+ * feed pages load.
+ * Called on main thread.
+ */
+public class ArticlePrefetcher {
+
+    private final Context mContext;
+    private final int mMaxArticles;
+    private final LinkedList<String> mPending = new LinkedList<>();
+    private ArticleLoad mInFlight;
+
+    /**
+     * @param maxArticles - number of top visible articles to save
+     */
+    public ArticlePrefetcher(Context context, int maxArticles) {
+        mContext = context.getApplicationContext();
+        mMaxArticles = maxArticles;
+    }
+
+    /**
+     * Save bodies of the given rows, replaces articles pending from the previous call
+     *
+     * @param rows - visible rows, null for placeholders
+     */
+    public void prefetch(List<News> rows) {
+        mPending.clear();
+        if (!isUnmetered()) return;
+        for (News news : rows) {
+            if (mPending.size() >= mMaxArticles) break;
+            if (news != null) mPending.add(news.getmUrl());
+        }
+        next();
+    }
+
+    /**
+     * Drop pending articles and cancel the running one
+     */
+    public void cancel() {
+        mPending.clear();
+        // Removing the only observer cancels the call
+        if (mInFlight != null) mInFlight.mCall.removeObserver(mInFlight);
+        mInFlight = null;
+    }
+
+    private void next() {
+        if (mInFlight != null || mPending.isEmpty()) return;
+        FeedCall<Boolean> call = FeedRepository.getInstance(mContext)
+                .prefetchArticle(mPending.removeFirst());
+        mInFlight = new ArticleLoad(call);
+        call.observeForever(mInFlight);
+    }
+
+    /**
+     * Observer of the running prefetch, kept to be removed on cancel
+     */
+    private class ArticleLoad implements Observer<Boolean> {
+        private final FeedCall<Boolean> mCall;
+
+        ArticleLoad(FeedCall<Boolean> call) {
+            mCall = call;
+        }
+
+        @Override
+        public void onChanged(Boolean saved) {
+            mCall.removeObserver(this);
+            mInFlight = null;
+            // Rejected while the feed loads, next idle scroll asks again
+            if (saved == null) {
+                mPending.clear();
+                return;
+            }
+            next();
+        }
+    }
+
+    private boolean isUnmetered() {
+        ConnectivityManager connectivityManager = (ConnectivityManager)
+                mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) return false;
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected()
+                && !connectivityManager.isActiveNetworkMetered();
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Article bodies for the in-app reader.
+ * <p>
+ * Body text is fetched through show-fields=bodyText of the article and kept
+ * gzip-compressed in a size-bounded disk cache, least recently read bodies are
+ * deleted first. Cached bodies can be read offline.
+ */
+public class ArticleStore {
+
+    private static final String LOG_TAG = ArticleStore.class.getName();
+    private static final String STORE_DIR = "articles";
+    private static final long MAX_DISK_BYTES = 10 * 1024 * 1024;
+    private static final String SHOW_FIELDS_PARAMETER = "show-fields";
+    private static final String SHOW_FIELDS_BODY_TEXT = "bodyText";
+    private static final String API_KEY_PARAMETER = "api-key";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static ArticleStore sInstance;
+
+    private final DiskLru mDisk;
+    private final String mApiKey;
+
+    private ArticleStore(Context context) {
+        // Files dir, so saved articles are not dropped with the cache on low storage
+        mDisk = new DiskLru(new File(context.getFilesDir(), STORE_DIR), MAX_DISK_BYTES);
+        mApiKey = context.getString(R.string.API_KEY);
+    }
+
+    public static synchronized ArticleStore getInstance(Context context) {
+        if (sInstance == null) sInstance = new ArticleStore(context.getApplicationContext());
+        return sInstance;
+    }
+
+    /**
+     * @return true if the body of the article is saved
+     */
+    public boolean contains(String url) {
+        return fileOf(url).exists();
+    }
+
+    /**
+     * Read saved body or fetch it. Runs on background thread.
+     *
+     * @param url    - webUrl of the article
+     * @param online - if false only saved body is returned
+     * @return body text, empty if the article has none, null if it is not saved offline
+     * @throws IOException if the fetch failed
+     */
+    public String load(String url, boolean online) throws IOException {
+        String body = read(url);
+        if (body != null || !online) return body;
+
+        body = fetch(url);
+        if (body == null) return "";
+        write(url, body);
+        return body;
+    }
+
+    /**
+     * Fetch and save body of the article unless it is saved. Runs on background thread.
+     *
+     * @return true if the body is saved
+     */
+    public boolean prefetch(String url) {
+        if (contains(url)) return true;
+        String body;
+        try {
+            body = fetch(url);
+        } catch (IOException e) {
+            // Prefetch stopped for a feed load is not a problem
+            FeedCall<?> call = FeedCall.current();
+            if (call == null || !call.getHandle().isCancelled()) {
+                Log.e(LOG_TAG, "Problem prefetching article", e);
+            }
+            return false;
+        }
+        if (body == null) return false;
+        write(url, body);
+        return true;
+    }
+
+    private String read(String url) {
+        File file = fileOf(url);
+        if (!file.exists()) return null;
+        InputStream in = null;
+        try {
+            in = new GZIPInputStream(new FileInputStream(file));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+            // Keeps recently read articles in the store
+            file.setLastModified(System.currentTimeMillis());
+            return new String(out.toByteArray(), UTF_8);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading article", e);
+            mDisk.delete(file);
+            return null;
+        } finally {
+            DiskLru.closeQuietly(in);
+        }
+    }
+
+    private void write(String url, String body) {
+        File file = fileOf(url);
+        // Reader and prefetch may save the same article, each writes its own file
+        File temp = new File(file.getPath() + "." + Thread.currentThread().getId()
+                + DiskLru.TEMP_SUFFIX);
+        OutputStream out = null;
+        try {
+            out = new GZIPOutputStream(new FileOutputStream(temp));
+            out.write(body.getBytes(UTF_8));
+            out.close();
+            out = null;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing article", e);
+            temp.delete();
+            return;
+        } finally {
+            DiskLru.closeQuietly(out);
+        }
+
+        if (!mDisk.publish(temp, file)) return;
+        mDisk.trim();
+    }
+
+    /**
+     * Fetch body text of the article from API under the handle of the running
+     * {@link FeedCall}. Runs on background thread.
+     *
+     * @return body text or null if the article has none, e.g. a gallery or a video
+     * @throws IOException on network error, error status or malformed response
+     */
+    private String fetch(String webUrl) throws IOException {
+        URL url = new URL(apiUrl(webUrl));
+        FeedCall<?> call = FeedCall.current();
+        RequestHandle handle = call != null ? call.getHandle() : new RequestHandle();
+
+        NewsHttpClient client = NewsHttpClient.getInstance();
+        HttpURLConnection connection = null;
+        InputStream in = null;
+        boolean failed = true;
+        try {
+            connection = client.open(url);
+            // Cancelled call closes the connection to stop the read
+            if (!handle.attach(connection)) throw new IOException("Request cancelled");
+            int responseCode = connection.getResponseCode();
+            // Not in the content API, the browser shows it
+            if (responseCode == HttpURLConnection.HTTP_NOT_FOUND) return null;
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw FetchException.forStatus(responseCode);
+            }
+            in = connection.getInputStream();
+            String body = parseBodyText(in);
+            failed = false;
+            return body;
+        } catch (IllegalStateException e) {
+            throw new FetchException("Malformed article response", 0, false, e);
+        } finally {
+            if (connection != null) handle.detach(connection);
+            client.release(connection, in, failed);
+        }
+    }
+
+    /**
+     * Item url of the article: API endpoint with the path of webUrl
+     */
+    private String apiUrl(String webUrl) throws IOException {
+        String path = Uri.parse(webUrl).getEncodedPath();
+        if (path == null || path.length() < 2) throw new IOException("No article path: " + webUrl);
+        return Uri.parse(BuildConfig.NEWS_ENDPOINT).buildUpon()
+                .appendEncodedPath(path.substring(1))
+                .appendQueryParameter(SHOW_FIELDS_PARAMETER, SHOW_FIELDS_BODY_TEXT)
+                .appendQueryParameter(API_KEY_PARAMETER, mApiKey)
+                .build().toString();
+    }
+
+    /**
+     * Read response.content.fields.bodyText from the stream
+     *
+     * @return body text or null if the response has none
+     */
+    private static String parseBodyText(InputStream inputStream) throws IOException {
+        // Reader is not closed, the stream is owned by the caller
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, UTF_8));
+        String body = null;
+        boolean statusOk = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("response")) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("status")) {
+                    statusOk = reader.nextString().equals("ok");
+                } else if (name.equals("content")) {
+                    body = readContentBody(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+
+        return statusOk && body != null && !body.isEmpty() ? body : null;
+    }
+
+    private static String readContentBody(JsonReader reader) throws IOException {
+        String body = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("fields")) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals(SHOW_FIELDS_BODY_TEXT) && reader.peek() != JsonToken.NULL) {
+                    body = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        return body;
+    }
+
+    private File fileOf(String url) {
+        return new File(mDisk.getDirectory(), Long.toHexString(News.urlId(url)) + ".gz");
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.android.newsapp;
+
+/**
+ * Time source of the stored pages and the background sync, replaceable in tests
+ */
+public interface Clock {
+
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    long currentTimeMillis();
+}
@@ -0,0 +1,131 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Size bound of a cache directory. Files are published into the directory through
+ * it, least recently modified files are deleted once the directory grows above the
+ * bound. Owners touch a file on use to keep it.
+ * <p>
+ * Files being written end with {@link #TEMP_SUFFIX}, they are not counted until published.
+ */
+class DiskLru {
+
+    static final String TEMP_SUFFIX = ".tmp";
+
+    private static final String LOG_TAG = DiskLru.class.getName();
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+    // Counted on first use, -1 until then
+    private long mBytes = -1;
+
+    DiskLru(File directory, long maxBytes) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            Log.e(LOG_TAG, "Can't create cache directory " + mDirectory);
+        }
+    }
+
+    public File getDirectory() {
+        return mDirectory;
+    }
+
+    /**
+     * Move written temporary file to its name, replacing the file stored there
+     *
+     * @return false if the file couldn't be moved, the temporary file is deleted then
+     */
+    public synchronized boolean publish(File temp, File file) {
+        count();
+        long replaced = file.length();
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return false;
+        }
+        mBytes += file.length() - replaced;
+        return true;
+    }
+
+    /**
+     * @return length of the deleted file, 0 if it was not deleted
+     */
+    public synchronized long delete(File file) {
+        count();
+        long length = deleteFile(file);
+        mBytes -= length;
+        return length;
+    }
+
+    /**
+     * Delete least recently modified files above the size bound
+     */
+    public synchronized void trim() {
+        count();
+        if (mBytes <= mMaxBytes) return;
+
+        File[] files = mDirectory.listFiles();
+        if (files == null) return;
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long a = first.lastModified(), b = second.lastModified();
+                return a < b ? -1 : (a == b ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            if (mBytes <= mMaxBytes) break;
+            if (isTemp(file)) continue;
+            mBytes -= evict(file);
+        }
+    }
+
+    /**
+     * Delete the file while trimming, owners override it to drop files kept together
+     *
+     * @return deleted bytes
+     */
+    protected long evict(File file) {
+        return deleteFile(file);
+    }
+
+    /**
+     * @return length of the deleted file, 0 if it was not deleted
+     */
+    static long deleteFile(File file) {
+        long length = file.length();
+        return file.delete() ? length : 0;
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void count() {
+        if (mBytes >= 0) return;
+        long size = 0;
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!isTemp(file)) size += file.length();
+            }
+        }
+        mBytes = size;
+    }
+
+    private static boolean isTemp(File file) {
+        return file.getName().endsWith(TEMP_SUFFIX);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.android.newsapp;
+
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.Observer;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cancellable background load of {@link FeedRepository}, observed as {@link LiveData}.
+ * <p>
+ * The result is delivered once, only while the observer is started. When the last
+ * observer is removed, e.g. its activity is destroyed, the call is cancelled:
+ * it is dropped from the queue or its network connection is closed.
+ */
+public class FeedCall<T> extends LiveData<T> implements Runnable, Comparable<FeedCall<?>> {
+
+    private static final String LOG_TAG = FeedCall.class.getName();
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    private static final ThreadLocal<FeedCall<?>> CURRENT = new ThreadLocal<>();
+
+    private final Callable<T> mTask;
+    private final int mPriority;
+    private final long mSequence = SEQUENCE.getAndIncrement();
+    private final RequestHandle mHandle = new RequestHandle();
+    private FeedRepository mRepository;
+    private boolean mCancelled, mDone;
+
+    FeedCall(Callable<T> task, int priority) {
+        mTask = task;
+        mPriority = priority;
+    }
+
+    /**
+     * @return call running on the current thread, null outside of a call
+     */
+    static FeedCall<?> current() {
+        return CURRENT.get();
+    }
+
+    void setRepository(FeedRepository repository) {
+        mRepository = repository;
+    }
+
+    public int getPriority() {
+        return mPriority;
+    }
+
+    /**
+     * @return handle of the network requests made by the call
+     */
+    RequestHandle getHandle() {
+        return mHandle;
+    }
+
+    @Override
+    public void run() {
+        if (isCancelled()) return;
+        CURRENT.set(this);
+        T result = null;
+        try {
+            result = mTask.call();
+        } catch (Exception e) {
+            // Failed load is delivered as null result
+            Log.e(LOG_TAG, "Problem running feed call", e);
+        } finally {
+            CURRENT.remove();
+        }
+        synchronized (this) {
+            if (mCancelled) return;
+            mDone = true;
+        }
+        postValue(result);
+    }
+
+    /**
+     * Stop the call. Result of a cancelled call is never delivered.
+     */
+    public void cancel() {
+        synchronized (this) {
+            if (mCancelled || mDone) return;
+            mCancelled = true;
+        }
+        if (mRepository != null) mRepository.remove(this);
+        // Closing the socket unblocks the read on the worker thread
+        mHandle.cancel();
+    }
+
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Deliver null result without running, e.g. when the queue is full
+     */
+    void reject() {
+        synchronized (this) {
+            mDone = true;
+        }
+        postValue(null);
+    }
+
+    @Override
+    public void removeObserver(@NonNull Observer<T> observer) {
+        super.removeObserver(observer);
+        // Nobody waits for the result anymore
+        if (!hasObservers()) cancel();
+    }
+
+    @Override
+    public int compareTo(@NonNull FeedCall<?> other) {
+        if (mPriority != other.mPriority) return mPriority < other.mPriority ? -1 : 1;
+        return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Position of a paginated newest-first feed, anchored on the last taken news.
+ * <p>
+ * Pages are requested by index, but news published during a session move every
+ * page down. The cursor keeps publication time and id of the last taken news and
+ * ids of all taken news, drops repeats when a page is merged and measures how far
+ * the feed moved, so the next requested page starts at the next unseen news.
+ */
+public class FeedCursor {
+
+    private final int mPageSize;
+    private final LongHashSet mSeen = new LongHashSet();
+    private long mLastPublishedAt = Long.MAX_VALUE;
+    private long mLastId;
+    //News taken from pages
+    private int mTaken;
+    //Rows the feed moved down since the first page
+    private int mShift;
+
+    /**
+     * @param pageSize - page size of the requests
+     */
+    public FeedCursor(int pageSize) {
+        mPageSize = pageSize;
+    }
+
+    /**
+     * @return page which holds the next unseen news
+     */
+    public synchronized int nextPage() {
+        int page = (mTaken + mShift) / mPageSize + 1;
+        // First page starts a new session, never go back to it
+        return mTaken > 0 ? Math.max(page, 2) : page;
+    }
+
+    /**
+     * Take news of a loaded page which come after the cursor and were not seen yet
+     *
+     * @param page - page number of the request
+     * @param news - news of the page, newest first
+     * @return news to append to the list, empty if the whole page was already seen
+     */
+    public synchronized List<News> accept(int page, List<News> news) {
+        List<News> accepted = new ArrayList<>();
+        int start = (page - 1) * mPageSize;
+        //Rows down to the last news published after the taken ones
+        int newerEnd = 0;
+        for (int i = 0; i < news.size(); i++) {
+            News current = news.get(i);
+            if (!isAfterCursor(current)) {
+                if (!mSeen.contains(current.getId())) newerEnd = start + i + 1;
+                continue;
+            }
+            if (!mSeen.add(current.getId())) continue;
+            // Position of the first unseen news tells how far the feed moved
+            if (accepted.isEmpty()) mShift = start + i - mTaken;
+            accepted.add(current);
+        }
+
+        if (accepted.isEmpty()) {
+            // Whole page is above the cursor, the next unseen news is on a later page.
+            // Seen news put the cursor right after the page, news published after the
+            // taken ones (e.g. above a stale first page) put every taken news below them.
+            mShift = Math.max(mShift, Math.max(start + mPageSize - mTaken, newerEnd));
+        } else {
+            News last = accepted.get(accepted.size() - 1);
+            mLastPublishedAt = last.getPublishedAt();
+            mLastId = last.getId();
+            mTaken += accepted.size();
+        }
+        return accepted;
+    }
+
+    /**
+     * Remember news shown outside of the pages, e.g. prepended by a refresh
+     */
+    public synchronized void markSeen(List<News> news) {
+        for (News current : news) mSeen.add(current.getId());
+    }
+
+    public synchronized boolean isSeen(News news) {
+        return mSeen.contains(news.getId());
+    }
+
+    private boolean isAfterCursor(News news) {
+        long publishedAt = news.getPublishedAt();
+        // News of the same second are told apart by the seen ids
+        return publishedAt < mLastPublishedAt
+                || (publishedAt == mLastPublishedAt && news.getId() != mLastId);
+    }
+}
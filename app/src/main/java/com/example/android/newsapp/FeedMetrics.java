@@ -0,0 +1,296 @@
+package com.example.android.newsapp;
+
+import android.os.SystemClock;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-request network and parse metrics of the feed, keyed by section and page.
+ * <p>
+ * Counters and latency histograms are aggregated per section, the last requests
+ * are kept with their page number. Recording is a few atomic increments,
+ * so it stays on in release builds.
+ */
+public class FeedMetrics {
+
+    private static final int RECENT_REQUESTS = 50;
+
+    private static final FeedMetrics INSTANCE = new FeedMetrics();
+
+    private final ConcurrentHashMap<String, SectionStats> mSections =
+            new ConcurrentHashMap<>();
+    private final ArrayDeque<Request> mRecent = new ArrayDeque<>();
+
+    //Resilience counters
+    private final AtomicLong mRetries = new AtomicLong();
+    private final AtomicLong mHedges = new AtomicLong();
+    private final AtomicLong mHedgeWins = new AtomicLong();
+    private final AtomicLong mBudgetExhausted = new AtomicLong();
+
+    /**
+     * Aggregated metrics of one section
+     */
+    private static class SectionStats {
+        final AtomicLong mRequests = new AtomicLong();
+        final AtomicLong mErrors = new AtomicLong();
+        final AtomicLong mCancelled = new AtomicLong();
+        final AtomicLong mNotModified = new AtomicLong();
+        final AtomicLong mBytes = new AtomicLong();
+        final AtomicLong mItems = new AtomicLong();
+        final LatencyHistogram mConnect = new LatencyHistogram();
+        final LatencyHistogram mFirstByte = new LatencyHistogram();
+        final LatencyHistogram mBody = new LatencyHistogram();
+        final LatencyHistogram mTotal = new LatencyHistogram();
+    }
+
+    /**
+     * Timing of one request, filled by {@link Utils} as the request goes.
+     * Filled on a worker thread and reported on another, so values are guarded
+     * by the request lock.
+     */
+    public static class Request {
+        private final String mSection;
+        private final int mPage;
+        private int mPageSize = FetchPolicy.DEFAULT_PAGE_SIZE;
+        private String mFields = "";
+        private final long mStart = SystemClock.elapsedRealtime();
+        private long mConnected, mFirstByte, mParsed;
+        private long mBytes;
+        private int mItems, mResponseCode;
+        private String mError;
+        private boolean mCancelled;
+
+        Request(String section, int page) {
+            mSection = section;
+            mPage = page;
+        }
+
+        public synchronized void connected() {
+            mConnected = SystemClock.elapsedRealtime();
+        }
+
+        public synchronized void firstByte(int responseCode) {
+            mFirstByte = SystemClock.elapsedRealtime();
+            mResponseCode = responseCode;
+        }
+
+        /**
+         * Body is downloaded and parsed in one streaming pass
+         */
+        public synchronized void parsed(long networkBytes, int items) {
+            mParsed = SystemClock.elapsedRealtime();
+            mBytes = networkBytes;
+            mItems = items;
+        }
+
+        public synchronized void failed(String error) {
+            mError = error;
+        }
+
+        /**
+         * Request was stopped on purpose, e.g. the slower copy of a hedged request
+         */
+        public synchronized void cancelled() {
+            mCancelled = true;
+        }
+
+        public void finish() {
+            INSTANCE.record(this);
+            synchronized (this) {
+                if (mError == null && !mCancelled && mResponseCode == 200 && mParsed != 0) {
+                    NetworkEstimator.getInstance().update(mFirstByte - mStart, mBytes,
+                            mParsed - mFirstByte);
+                }
+            }
+        }
+
+        synchronized JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("section", mSection);
+            json.put("page", mPage);
+            json.put("pageSize", mPageSize);
+            json.put("fields", mFields);
+            json.put("code", mResponseCode);
+            json.put("connectMs", mConnected == 0 ? -1 : mConnected - mStart);
+            json.put("ttfbMs", mFirstByte == 0 ? -1 : mFirstByte - mStart);
+            json.put("bodyMs", mParsed == 0 || mFirstByte == 0 ? -1 : mParsed - mFirstByte);
+            json.put("bytes", mBytes);
+            json.put("items", mItems);
+            if (mCancelled) {
+                json.put("cancelled", true);
+            } else if (mError != null) {
+                json.put("error", mError);
+            }
+            return json;
+        }
+    }
+
+    private FeedMetrics() {
+    }
+
+    public static FeedMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start request metrics, section and page are taken from the request url
+     */
+    public Request start(URL url) {
+        if (url == null) return new Request("unknown", 1);
+
+        Request request = new Request(sectionOf(url), intParameter(url, "page", 1));
+        request.mPageSize = intParameter(url, "page-size", FetchPolicy.DEFAULT_PAGE_SIZE);
+        String fields = parameter(url, "show-fields");
+        if (fields != null) request.mFields = fields;
+        return request;
+    }
+
+    /**
+     * Total latency percentile of the section of the url
+     *
+     * @param minSamples - fewer recorded requests are not representative
+     * @return latency in ms or -1 if there are not enough samples
+     */
+    public long latencyPercentile(URL url, double percentile, long minSamples) {
+        SectionStats stats = mSections.get(sectionOf(url));
+        if (stats == null || stats.mTotal.count() < minSamples) return -1;
+        return stats.mTotal.percentile(percentile);
+    }
+
+    public void recordRetry() {
+        mRetries.incrementAndGet();
+    }
+
+    public void recordHedge() {
+        mHedges.incrementAndGet();
+    }
+
+    public void recordHedgeWin() {
+        mHedgeWins.incrementAndGet();
+    }
+
+    public void recordBudgetExhausted() {
+        mBudgetExhausted.incrementAndGet();
+    }
+
+    private static String sectionOf(URL url) {
+        String path = url.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static String parameter(URL url, String name) {
+        String query = url.getQuery();
+        if (query == null) return null;
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                try {
+                    return URLDecoder.decode(parameter.substring(name.length() + 1), "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int intParameter(URL url, String name, int defaultValue) {
+        String value = parameter(url, name);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private void record(Request request) {
+        SectionStats stats = mSections.get(request.mSection);
+        if (stats == null) {
+            stats = new SectionStats();
+            SectionStats existing = mSections.putIfAbsent(request.mSection, stats);
+            if (existing != null) stats = existing;
+        }
+
+        long end = SystemClock.elapsedRealtime();
+        synchronized (request) {
+            record(stats, request, end);
+        }
+
+        synchronized (mRecent) {
+            if (mRecent.size() == RECENT_REQUESTS) mRecent.removeFirst();
+            mRecent.addLast(request);
+        }
+    }
+
+    /**
+     * Add the request to the section aggregates, called with the request lock held
+     */
+    private static void record(SectionStats stats, Request request, long end) {
+        stats.mRequests.incrementAndGet();
+        if (request.mCancelled) {
+            stats.mCancelled.incrementAndGet();
+        } else if (request.mError != null) {
+            stats.mErrors.incrementAndGet();
+        }
+        if (request.mResponseCode == 304) stats.mNotModified.incrementAndGet();
+        stats.mBytes.addAndGet(request.mBytes);
+        stats.mItems.addAndGet(request.mItems);
+        if (request.mConnected != 0) stats.mConnect.record(request.mConnected - request.mStart);
+        if (request.mFirstByte != 0) stats.mFirstByte.record(request.mFirstByte - request.mStart);
+        if (request.mParsed != 0 && request.mFirstByte != 0) {
+            stats.mBody.record(request.mParsed - request.mFirstByte);
+        }
+        // Cancelled requests would skew the latency used for hedging
+        if (!request.mCancelled) stats.mTotal.record(end - request.mStart);
+    }
+
+    /**
+     * Report of all metrics
+     */
+    public JSONObject toJson() throws JSONException {
+        JSONObject report = new JSONObject();
+
+        JSONObject sections = new JSONObject();
+        for (Map.Entry<String, SectionStats> entry : mSections.entrySet()) {
+            SectionStats stats = entry.getValue();
+            JSONObject json = new JSONObject();
+            json.put("requests", stats.mRequests.get());
+            json.put("errors", stats.mErrors.get());
+            json.put("cancelled", stats.mCancelled.get());
+            json.put("notModified", stats.mNotModified.get());
+            json.put("bytes", stats.mBytes.get());
+            json.put("items", stats.mItems.get());
+            json.put("connectMs", stats.mConnect.toJson());
+            json.put("ttfbMs", stats.mFirstByte.toJson());
+            json.put("bodyMs", stats.mBody.toJson());
+            json.put("totalMs", stats.mTotal.toJson());
+            sections.put(entry.getKey(), json);
+        }
+        report.put("sections", sections);
+
+        JSONObject resilience = new JSONObject();
+        resilience.put("retries", mRetries.get());
+        resilience.put("hedges", mHedges.get());
+        resilience.put("hedgeWins", mHedgeWins.get());
+        resilience.put("budgetExhausted", mBudgetExhausted.get());
+        report.put("resilience", resilience);
+
+        JSONArray recent = new JSONArray();
+        synchronized (mRecent) {
+            for (Request request : mRecent) recent.put(request.toJson());
+        }
+        report.put("recent", recent);
+
+        return report;
+    }
+}
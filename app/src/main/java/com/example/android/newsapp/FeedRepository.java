@@ -0,0 +1,406 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.os.Process;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads feed pages from {@link NewsStore} or network.
+ * <p>
+ * Async loads run as {@link FeedCall}s on a small executor with a priority queue:
+ * the page the user waits for goes before reloads of evicted pages, and those go
+ * before prefetch. Prefetch is rejected while the queue is full, and cancelled calls
+ * stop their network read right away. Article prefetch runs one at a time on its own
+ * lowest-priority thread, and only while no feed page loads: a feed call stops the
+ * running prefetch. Offline searches run on their own thread too.
+ */
+public class FeedRepository {
+
+    public static final int PRIORITY_VISIBLE = 0;
+    public static final int PRIORITY_RELOAD = 1;
+    public static final int PRIORITY_PREFETCH = 2;
+    public static final int PRIORITY_ARTICLE = 3;
+
+    private static final int THREADS = 2;
+    //Queued calls above that reject new prefetch
+    private static final int MAX_QUEUED_PREFETCH = 4;
+    private static final long FETCH_MEMO_MILLIS = 2000;
+
+    private static final SingleFlight<NewsPage> FETCHES = new SingleFlight<>(FETCH_MEMO_MILLIS);
+
+    private static FeedRepository sInstance;
+
+    private final Context mContext;
+    private final ThreadPoolExecutor mExecutor;
+    private final ThreadPoolExecutor mArticleExecutor;
+    private final ThreadPoolExecutor mSearchExecutor;
+    // Article prefetch on the article thread, stopped by feed calls
+    private volatile FeedCall<?> mRunningArticle;
+
+    private FeedRepository(Context context) {
+        mContext = context.getApplicationContext();
+        mExecutor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "feed-" + mCount.incrementAndGet());
+            }
+        });
+        mExecutor.allowCoreThreadTimeOut(true);
+
+        // Articles and searches never hold a feed thread
+        mArticleExecutor = singleThread("article-prefetch", Process.THREAD_PRIORITY_LOWEST);
+        mSearchExecutor = singleThread("news-search", Process.THREAD_PRIORITY_BACKGROUND);
+    }
+
+    private static ThreadPoolExecutor singleThread(final String name, final int threadPriority) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(threadPriority);
+                        runnable.run();
+                    }
+                }, name);
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public static synchronized FeedRepository getInstance(Context context) {
+        if (sInstance == null) sInstance = new FeedRepository(context);
+        return sInstance;
+    }
+
+    /**
+     * Load page of a section
+     *
+     * @param url          - request url for network load
+     * @param section      - section key of the page in {@link NewsStore}
+     * @param page         - page number key in {@link NewsStore}
+     * @param online       - if false only cached page is returned
+     * @param forceRefresh - skip cached page and go to the network first
+     * @param priority     - one of PRIORITY_ constants
+     * @return call with the page, its news with prepared display values,
+     * null result if nothing is loaded
+     */
+    public FeedCall<NewsPage> loadPage(final String url, final String section, final int page,
+                                       final boolean online, final boolean forceRefresh,
+                                       int priority) {
+        return enqueue(new Callable<NewsPage>() {
+            @Override
+            public NewsPage call() {
+                NewsPage result = loadPage(mContext, url, section, page, online, forceRefresh);
+                // Row values are ready before the page reaches the adapter
+                if (result != null) NewsDisplay.prepare(mContext, result.getNews());
+                return result;
+            }
+        }, priority);
+    }
+
+    /**
+     * Load next merged chunk of multi-section feed
+     *
+     * @param feed      - feed which keeps pagination state of the sections
+     * @param chunkSize - number of news to load
+     * @param page      - chunk number, merged chunk is stored under it for reload
+     * @param online    - if false only cached pages are used
+     * @return call with merged news, the page is from the store if any section page was
+     */
+    public FeedCall<NewsPage> loadChunk(final MultiSectionFeed feed, final int chunkSize,
+                                        final int page, final boolean online) {
+        return enqueue(new Callable<NewsPage>() {
+            @Override
+            public NewsPage call() {
+                List<News> news = feed.loadNext(chunkSize, online);
+                if (!news.isEmpty()) {
+                    NewsStore.getInstance(mContext).putPage(feed.getKey(), page, 0, news);
+                }
+                NewsDisplay.prepare(mContext, news);
+                return new NewsPage(news, 0, feed.isLastChunkFromStore());
+            }
+        }, PRIORITY_VISIBLE);
+    }
+
+    /**
+     * Reload page evicted from memory
+     *
+     * @param url - request url, null if the page can be read only from the store
+     */
+    public FeedCall<List<News>> reloadPage(final String url, final String section,
+                                           final int page, final boolean online) {
+        return enqueue(new Callable<List<News>>() {
+            @Override
+            public List<News> call() {
+                return reloadPage(mContext, url, section, page, online);
+            }
+        }, PRIORITY_RELOAD);
+    }
+
+    /**
+     * Fetch news published since the newest loaded one, bypassing the http cache so
+     * the refresh always sees the latest results. Fetched news are put on top of the
+     * stored first page, a cold start shows them too.
+     *
+     * @param url     - request url with from-date and order-by=newest
+     * @param section - section key of the feed in {@link NewsStore}
+     * @return call with news newest first, empty result if the fetch failed
+     */
+    public FeedCall<List<News>> loadNewer(final String url, final String section) {
+        return enqueue(new Callable<List<News>>() {
+            @Override
+            public List<News> call() {
+                List<News> news = Utils.fetchNewsPage(url, null).getNews();
+                if (!news.isEmpty()) NewsStore.getInstance(mContext).putNewerNews(section, news);
+                NewsSearchIndex.getInstance(mContext).indexLater(news);
+                NewsDisplay.prepare(mContext, news);
+                return news;
+            }
+        }, PRIORITY_VISIBLE);
+    }
+
+    /**
+     * Load body text of an article for the reader
+     *
+     * @param url    - webUrl of the article
+     * @param online - if false only saved body is returned
+     * @return call with body text, empty if the article has none, null result if it
+     * is not saved offline or the fetch failed
+     */
+    public FeedCall<String> loadArticle(final String url, final boolean online) {
+        return enqueue(new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                // Failed fetch is delivered as null result
+                return ArticleStore.getInstance(mContext).load(url, online);
+            }
+        }, PRIORITY_VISIBLE);
+    }
+
+    /**
+     * Save body text of an article for the reader, only while no feed page loads
+     *
+     * @param url - webUrl of the article
+     * @return call with true if the body is saved, null result if the call was rejected
+     * or stopped by a feed load
+     */
+    public FeedCall<Boolean> prefetchArticle(final String url) {
+        return enqueue(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                FeedCall<?> call = FeedCall.current();
+                mRunningArticle = call;
+                try {
+                    // Feed call enqueued while this one waited
+                    if (isFeedLoading()) return null;
+                    boolean saved = ArticleStore.getInstance(mContext).prefetch(url);
+                    if (!saved && call.getHandle().isCancelled()) return null;
+                    return saved;
+                } finally {
+                    mRunningArticle = null;
+                }
+            }
+        }, PRIORITY_ARTICLE);
+    }
+
+    /**
+     * Search fetched news offline. Runs on its own thread, so queries typed while
+     * pages load don't wait for them or delay them.
+     *
+     * @param query - words matched as prefixes, text in double quotes as a phrase
+     * @param limit - max number of results
+     * @return call with matching news, newest first
+     */
+    public FeedCall<List<News>> search(final String query, final int limit) {
+        FeedCall<List<News>> call = new FeedCall<>(new Callable<List<News>>() {
+            @Override
+            public List<News> call() {
+                List<News> news = NewsSearchIndex.getInstance(mContext).search(query, limit);
+                NewsDisplay.prepare(mContext, news);
+                return news;
+            }
+        }, PRIORITY_VISIBLE);
+        call.setRepository(this);
+        mSearchExecutor.execute(call);
+        return call;
+    }
+
+    private <T> FeedCall<T> enqueue(Callable<T> task, int priority) {
+        FeedCall<T> call = new FeedCall<>(task, priority);
+        call.setRepository(this);
+        if (priority == PRIORITY_PREFETCH && mExecutor.getQueue().size() >= MAX_QUEUED_PREFETCH) {
+            call.reject();
+        } else if (priority == PRIORITY_ARTICLE) {
+            // Article prefetch leaves the network to feed loads
+            if (isFeedLoading()) {
+                call.reject();
+            } else {
+                mArticleExecutor.execute(call);
+            }
+        } else {
+            mExecutor.execute(call);
+            // Closes the connection of the running article prefetch
+            FeedCall<?> article = mRunningArticle;
+            if (article != null) article.getHandle().cancel();
+        }
+        return call;
+    }
+
+    private boolean isFeedLoading() {
+        return mExecutor.getActiveCount() > 0 || !mExecutor.getQueue().isEmpty();
+    }
+
+    /**
+     * Drop cancelled call from the queue
+     */
+    void remove(FeedCall<?> call) {
+        if (!mExecutor.remove(call) && !mArticleExecutor.remove(call)) {
+            mSearchExecutor.remove(call);
+        }
+    }
+
+    /**
+     * Reload page evicted from memory. Runs on background thread.
+     *
+     * @param url - request url, null if the page can be read only from the store
+     * @return news with prepared display values or null
+     */
+    private static List<News> reloadPage(Context context, String url, String section, int page,
+                                         boolean online) {
+        // Rows are matched by id, a stale stored page restores them as well as a fresh one
+        NewsPage result = NewsStore.getInstance(context).getPage(section, page);
+        if (result == null && url != null) {
+            result = loadNewsPage(context, url, section, page, online, false);
+        }
+        if (result == null) return null;
+        NewsDisplay.prepare(context, result.getNews());
+        return result.getNews();
+    }
+
+    /**
+     * Load page from {@link NewsStore} or network and update {@link Utils#getMaxPages()}.
+     * Runs on background thread.
+     */
+    private static NewsPage loadPage(Context context, String url, String section,
+                                     int page, boolean online, boolean forceRefresh) {
+        NewsPage result = loadNewsPage(context, url, section, page, online, forceRefresh);
+        if (result == null) return null;
+        if (result.getTotalPages() > 0) Utils.setMaxPages(result.getTotalPages());
+        return result;
+    }
+
+    /**
+     * Load page from {@link NewsStore} or network. Runs on background thread.
+     *
+     * @return loaded page or null if nothing is available offline
+     */
+    static NewsPage loadNewsPage(Context context, String url, String section, int page,
+                                 boolean online, boolean forceRefresh) {
+        FeedCall<?> call = FeedCall.current();
+        return loadNewsPage(context, url, section, page, online, forceRefresh,
+                call != null ? call.getHandle() : null);
+    }
+
+    /**
+     * Load page from {@link NewsStore} or network on behalf of the given caller,
+     * e.g. a task of a call on another thread. Runs on background thread.
+     *
+     * @param caller - handle of the call waiting for the page, null if it is never cancelled
+     * @return loaded page or null if nothing is available offline
+     */
+    static NewsPage loadNewsPage(Context context, final String url, final String section,
+                                 final int page, boolean online, boolean forceRefresh,
+                                 RequestHandle caller) {
+        if(url == null) return null;
+
+        final Context appContext = context.getApplicationContext();
+        final NewsStore store = NewsStore.getInstance(appContext);
+        NewsStore.CachedPage cached = store.getPage(section, page);
+
+        // Stale-while-revalidate: cached page is returned right away.
+        // Later pages are followed by FeedCursor, a stale one next to fresh pages
+        // would skip or repeat news, so it is fetched while online.
+        if (cached != null && !(forceRefresh && online)
+                && !(online && page > 1 && store.isStale(cached))) {
+            if (online && store.isStale(cached)) {
+                NewsHttpClient.getInstance().getDispatcher().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        fetchAndStore(appContext, url, section, page, null);
+                    }
+                });
+            }
+            return cached;
+        }
+
+        if (!online) return null;
+
+        NewsPage fresh = fetchAndStore(appContext, url, section, page, caller);
+
+        // Network failed, fall back to whatever is cached
+        if (fresh.getNews().isEmpty() && cached != null) {
+            return cached;
+        }
+        return fresh;
+    }
+
+    /**
+     * Fetch page from network, concurrent requests of the same url share one download
+     *
+     * @param caller - handle of the call waiting for the page, null if it is never cancelled
+     */
+    private static NewsPage fetchAndStore(final Context context, final String url,
+                                          final String section, final int page,
+                                          RequestHandle caller) {
+        NewsPage result = null;
+        // Shared download runs under its own handle, cancelled when every caller left
+        try {
+            result = FETCHES.execute(url, caller,
+                    new SingleFlight.Call<NewsPage>() {
+                @Override
+                public NewsPage call(RequestHandle handle) {
+                    NewsPage fetched = Utils.fetchNewsPage(url, HttpCache.getInstance(context),
+                            handle);
+                    // Failed fetch is not memoized, next caller retries it
+                    if (fetched.getNews().isEmpty()) return null;
+                    NewsStore.getInstance(context).putPage(section, page,
+                            fetched.getTotalPages(), fetched.getNews());
+                    NewsSearchIndex.getInstance(context).indexLater(fetched.getNews());
+                    return fetched;
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result != null ? result : new NewsPage(new ArrayList<News>(), 0);
+    }
+
+    /**
+     * @return number of page loads served by another in-flight or just completed download
+     */
+    static long getCoalescedCount() {
+        return FETCHES.getSharedCount();
+    }
+}
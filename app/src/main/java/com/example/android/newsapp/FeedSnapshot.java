@@ -0,0 +1,290 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot of the rows which were visible when the feed was left,
+ * shown on the next cold start before any load result.
+ * <p>
+ * Binary format, big endian:
+ * <pre>
+ * header:  magic, version, CRC32 of the body, body length (4 x int)
+ * body:    section (string)
+ *          string table: count, strings (sections and bylines)
+ *          row count, row offsets from the start of the rows (int each)
+ *          rows: publishedAt (long, epoch millis), raw date (string, only for
+ *          dates not in the API format), section and byline (string table
+ *          indexes), title, trail text, url, thumbnail (strings)
+ * string:  UTF-8 length (int, -1 for null), UTF-8 bytes
+ * </pre>
+ * The file is memory-mapped and rows are decoded only when they are read.
+ */
+public class FeedSnapshot {
+
+    private static final String LOG_TAG = FeedSnapshot.class.getName();
+    private static final String FILE_NAME = "feed_snapshot.bin";
+    private static final int MAGIC = 0x4E465348;
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 16;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static volatile long sLastOpenNanos = -1;
+    private static volatile int sLastOpenBytes;
+
+    private final File mFile;
+
+    public FeedSnapshot(Context context) {
+        mFile = new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    /**
+     * Rows of a mapped snapshot, each row is decoded on its first read
+     */
+    public static class Rows extends AbstractList<News> implements RandomAccess {
+        private final ByteBuffer mBuffer;
+        private final String[] mStrings;
+        private final int[] mOffsets;
+        private final int mRowsStart;
+        // Rows handed out, so a row is the same News object on every read
+        private final News[] mDecoded;
+
+        Rows(ByteBuffer buffer, String[] strings, int[] offsets, int rowsStart) {
+            mBuffer = buffer;
+            mStrings = strings;
+            mOffsets = offsets;
+            mRowsStart = rowsStart;
+            mDecoded = new News[offsets.length];
+        }
+
+        @Override
+        public int size() {
+            return mOffsets.length;
+        }
+
+        @Override
+        public synchronized News get(int index) {
+            News news = mDecoded[index];
+            if (news == null) {
+                news = decode(index);
+                mDecoded[index] = news;
+            }
+            return news;
+        }
+
+        private News decode(int index) {
+            ByteBuffer in = mBuffer;
+            in.position(mRowsStart + mOffsets[index]);
+            long publishedAt = in.getLong();
+            String rawDate = readString(in);
+            String category = mStrings[in.getInt()];
+            String author = mStrings[in.getInt()];
+            String title = readString(in);
+            String trailText = readString(in);
+            String url = readString(in);
+            String thumbnail = readString(in);
+            String date = publishedAt != Long.MIN_VALUE ? News.formatDate(publishedAt) : rawDate;
+            return new News(title, trailText, url, date, category, author, thumbnail);
+        }
+    }
+
+    /**
+     * Write rows of the snapshot. Runs on background thread.
+     */
+    public void save(String section, List<News> news) {
+        File temp = new File(mFile.getPath() + ".tmp");
+        FileOutputStream out = null;
+        try {
+            byte[] body = encode(section, news);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt((int) crc.getValue()).putInt(body.length);
+
+            out = new FileOutputStream(temp);
+            out.write(header.array());
+            out.write(body);
+            out.close();
+            out = null;
+            if (!temp.renameTo(mFile)) temp.delete();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing snapshot", e);
+            temp.delete();
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Map the snapshot and check it, rows are decoded when they are read.
+     * Runs on background thread.
+     *
+     * @param section - snapshot of other section is ignored
+     * @return rows or null if there is no usable snapshot
+     */
+    public Rows load(String section) {
+        if (!mFile.exists()) return null;
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(mFile);
+            FileChannel channel = in.getChannel();
+            // Mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            Rows rows = parse(buffer, section);
+            sLastOpenNanos = SystemClock.elapsedRealtimeNanos() - start;
+            sLastOpenBytes = buffer.capacity();
+            return rows;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException
+                | IllegalArgumentException e) {
+            Log.e(LOG_TAG, "Problem reading snapshot", e);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * @return time of the last snapshot open in nanoseconds, -1 if there was none
+     */
+    static long getLastOpenNanos() {
+        return sLastOpenNanos;
+    }
+
+    /**
+     * @return size of the last opened snapshot file
+     */
+    static int getLastOpenBytes() {
+        return sLastOpenBytes;
+    }
+
+    private static byte[] encode(String section, List<News> news) throws IOException {
+        // Sections and bylines repeat across rows
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> indexes = new HashMap<>();
+
+        ByteArrayOutputStream rowBytes = new ByteArrayOutputStream();
+        DataOutputStream rows = new DataOutputStream(rowBytes);
+        int[] offsets = new int[news.size()];
+        for (int i = 0; i < news.size(); i++) {
+            News current = news.get(i);
+            offsets[i] = rows.size();
+            long publishedAt = current.getPublishedAt();
+            rows.writeLong(publishedAt);
+            writeString(rows, publishedAt == Long.MIN_VALUE ? current.getmDate() : null);
+            rows.writeInt(stringIndex(current.getmCategory(), strings, indexes));
+            rows.writeInt(stringIndex(current.getmAuthor(), strings, indexes));
+            writeString(rows, current.getmTitle());
+            writeString(rows, current.getmTrailText());
+            writeString(rows, current.getmUrl());
+            writeString(rows, current.getThumbnail());
+        }
+        rows.flush();
+
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(rowBytes.size() + 256);
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+        writeString(body, section);
+        body.writeInt(strings.size());
+        for (String string : strings) writeString(body, string);
+        body.writeInt(offsets.length);
+        for (int offset : offsets) body.writeInt(offset);
+        rowBytes.writeTo(body);
+        body.flush();
+        return bodyBytes.toByteArray();
+    }
+
+    private static Rows parse(ByteBuffer in, String section) {
+        if (in.capacity() < HEADER_SIZE || in.getInt() != MAGIC || in.getInt() != VERSION) {
+            return null;
+        }
+        int checksum = in.getInt();
+        int length = in.getInt();
+        if (length != in.capacity() - HEADER_SIZE) {
+            Log.e(LOG_TAG, "Snapshot is truncated");
+            return null;
+        }
+
+        // Check the body before any value is trusted
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[8192];
+        while (in.hasRemaining()) {
+            int count = Math.min(chunk.length, in.remaining());
+            in.get(chunk, 0, count);
+            crc.update(chunk, 0, count);
+        }
+        if ((int) crc.getValue() != checksum) {
+            Log.e(LOG_TAG, "Snapshot checksum mismatch");
+            return null;
+        }
+
+        in.position(HEADER_SIZE);
+        if (!section.equals(readString(in))) return null;
+        String[] strings = new String[in.getInt()];
+        for (int i = 0; i < strings.length; i++) strings[i] = readString(in);
+        int[] offsets = new int[in.getInt()];
+        for (int i = 0; i < offsets.length; i++) offsets[i] = in.getInt();
+        return new Rows(in, strings, offsets, in.position());
+    }
+
+    private static int stringIndex(String value, List<String> strings,
+                                   Map<String, Integer> indexes) {
+        Integer index = indexes.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.add(value);
+            indexes.put(value, index);
+        }
+        return index;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
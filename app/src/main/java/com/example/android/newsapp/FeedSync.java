@@ -0,0 +1,164 @@
+package com.example.android.newsapp;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background sync which pre-warms {@link NewsStore} with the first pages of the
+ * configured sections, so the app opens with fresh content without network wait.
+ */
+public class FeedSync {
+
+    private static final String LOG_TAG = FeedSync.class.getName();
+
+    static final int JOB_ID = 1001;
+    private static final long SYNC_INTERVAL = TimeUnit.HOURS.toMillis(1);
+    //Pages of every section written by one sync
+    static final int SYNC_PAGES = 2;
+    //Pages fetched more recently than that are not fetched again
+    static final long MIN_PAGE_AGE = TimeUnit.MINUTES.toMillis(15);
+    private static final int SYNC_THREADS = 2;
+
+    // Sync waits for its pages on the shared dispatcher, so they are fetched elsewhere
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            SYNC_THREADS, SYNC_THREADS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "feed-sync-" + mCount.incrementAndGet());
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private final Context mContext;
+    private final MultiSectionFeed.UrlFactory mUrlFactory;
+    private final Clock mClock;
+    private final int mPages;
+    private final long mMinPageAge;
+
+    public FeedSync(Context context, MultiSectionFeed.UrlFactory urlFactory, Clock clock,
+                    int pages, long minPageAge) {
+        mContext = context.getApplicationContext();
+        mUrlFactory = urlFactory;
+        mClock = clock;
+        mPages = pages;
+        mMinPageAge = minPageAge;
+    }
+
+    /**
+     * Fetch pages of all sections in one batch. Runs on background thread.
+     *
+     * @return number of pages written to the store
+     */
+    public int sync(Collection<String> sections) throws InterruptedException {
+        NewsStore store = NewsStore.getInstance(mContext);
+        long now = mClock.currentTimeMillis();
+
+        List<Callable<NewsPage>> tasks = new ArrayList<>();
+        for (final String section : sections) {
+            for (int page = 1; page <= mPages; page++) {
+                NewsStore.CachedPage cached = store.getPage(section, page);
+                if (cached != null && now - cached.getFetchedAt() < mMinPageAge) continue;
+
+                final int current = page;
+                final String url = mUrlFactory.pageUrl(section, page);
+                tasks.add(new Callable<NewsPage>() {
+                    @Override
+                    public NewsPage call() {
+                        // Network first, result is written to the store
+                        return FeedRepository.loadNewsPage(mContext, url, section, current,
+                                true, true);
+                    }
+                });
+            }
+        }
+        if (tasks.isEmpty()) return 0;
+
+        int synced = 0;
+        List<Future<NewsPage>> results = EXECUTOR.invokeAll(tasks);
+        for (Future<NewsPage> result : results) {
+            try {
+                NewsPage page = result.get();
+                if (page != null && !page.getNews().isEmpty()) synced++;
+            } catch (ExecutionException e) {
+                Log.e(LOG_TAG, "Problem syncing page", e);
+            }
+        }
+        return synced;
+    }
+
+    /**
+     * Sections shown by the feed: combined sections or the single category
+     */
+    static List<String> configuredSections(Context context) {
+        SharedPreferences sharedPreferences = PreferenceManager
+                .getDefaultSharedPreferences(context);
+        Set<String> sections = sharedPreferences.getStringSet(
+                context.getString(R.string.settings_sections_key),
+                Collections.<String>emptySet());
+        if (sections.size() >= 2) return new ArrayList<>(sections);
+
+        String category = sharedPreferences.getString(
+                context.getString(R.string.settings_category_key),
+                context.getString(R.string.settings_category_default));
+        return Collections.singletonList(category);
+    }
+
+    /**
+     * Schedule periodic sync on unmetered network while charging and idle.
+     * Does nothing before Lollipop or if the job is already scheduled.
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) return;
+        scheduleJob(context);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void scheduleJob(Context context) {
+        JobScheduler scheduler = (JobScheduler)
+                context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null) return;
+
+        for (JobInfo job : scheduler.getAllPendingJobs()) {
+            if (job.getId() == JOB_ID) return;
+        }
+
+        JobInfo job = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, FeedSyncJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .setPeriodic(SYNC_INTERVAL)
+                .setPersisted(true)
+                .build();
+        scheduler.schedule(job);
+    }
+}
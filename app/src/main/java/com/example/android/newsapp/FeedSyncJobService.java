@@ -0,0 +1,49 @@
+package com.example.android.newsapp;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.content.Context;
+import android.os.Build;
+
+import java.util.concurrent.Future;
+
+/**
+ * Job which runs {@link FeedSync} on the shared dispatcher
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class FeedSyncJobService extends JobService {
+
+    private Future<?> mSync;
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        final Context context = getApplicationContext();
+        mSync = NewsHttpClient.getInstance().getDispatcher().submit(new Runnable() {
+            @Override
+            public void run() {
+                boolean reschedule = false;
+                try {
+                    FeedSync sync = new FeedSync(context, new MultiSectionFeed.UrlFactory() {
+                        @Override
+                        public String pageUrl(String section, int page) {
+                            return MainActivity.constructUrl(context, page, section);
+                        }
+                    }, Clock.SYSTEM, FeedSync.SYNC_PAGES, FeedSync.MIN_PAGE_AGE);
+                    sync.sync(FeedSync.configuredSections(context));
+                } catch (InterruptedException e) {
+                    reschedule = true;
+                }
+                jobFinished(params, reschedule);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Constraints are gone, stop and retry later
+        if (mSync != null) mSync.cancel(true);
+        return true;
+    }
+}
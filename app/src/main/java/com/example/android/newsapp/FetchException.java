@@ -0,0 +1,38 @@
+package com.example.android.newsapp;
+
+import java.io.IOException;
+
+/**
+ * Failed feed request which is not a plain network error
+ */
+public class FetchException extends IOException {
+
+    private final int mResponseCode;
+    private final boolean mRetriable;
+
+    /**
+     * @param responseCode - HTTP status, 0 if the response was received but is not usable
+     * @param retriable    - if true the same request may succeed later
+     */
+    public FetchException(String message, int responseCode, boolean retriable, Throwable cause) {
+        super(message, cause);
+        mResponseCode = responseCode;
+        mRetriable = retriable;
+    }
+
+    public int getResponseCode() {
+        return mResponseCode;
+    }
+
+    public boolean isRetriable() {
+        return mRetriable;
+    }
+
+    /**
+     * Server errors and throttling are worth retrying, other statuses will repeat
+     */
+    static FetchException forStatus(int responseCode) {
+        boolean retriable = responseCode >= 500 || responseCode == 429;
+        return new FetchException("HTTP " + responseCode, responseCode, retriable, null);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.android.newsapp;
+
+/**
+ * Request parameters of a feed session chosen by {@link NetworkEstimator}.
+ * <p>
+ * Page size changes page boundaries, so a policy is kept until the feed is reset
+ * and pages of a non-default size are stored under their own section key.
+ */
+public class FetchPolicy {
+
+    //Page size of the API when page-size is not set
+    public static final int DEFAULT_PAGE_SIZE = 10;
+
+    public static final FetchPolicy DEFAULT =
+            new FetchPolicy("default", DEFAULT_PAGE_SIZE, 2, true, true);
+
+    private final String mName;
+    private final int mPageSize;
+    private final int mPrefetchDepth;
+    private final boolean mTrailTextAllowed;
+    private final boolean mThumbnailsAllowed;
+
+    FetchPolicy(String name, int pageSize, int prefetchDepth, boolean trailTextAllowed,
+                boolean thumbnailsAllowed) {
+        mName = name;
+        mPageSize = pageSize;
+        mPrefetchDepth = prefetchDepth;
+        mTrailTextAllowed = trailTextAllowed;
+        mThumbnailsAllowed = thumbnailsAllowed;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    public int getPrefetchDepth() {
+        return mPrefetchDepth;
+    }
+
+    /**
+     * @return false if trail text is not requested even when enabled in settings
+     */
+    public boolean isTrailTextAllowed() {
+        return mTrailTextAllowed;
+    }
+
+    public boolean isThumbnailsAllowed() {
+        return mThumbnailsAllowed;
+    }
+
+    /**
+     * @return {@link NewsStore} section key of pages fetched with this policy
+     */
+    public String storeKey(String section) {
+        return mPageSize == DEFAULT_PAGE_SIZE ? section : section + "@" + mPageSize;
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP validator cache. Stores ETag / Last-Modified and the decoded body per
+ * request URL, so a refresh can be sent as a conditional request and a
+ * 304 Not Modified answer is served from disk.
+ * <p>
+ * Cache is size-bounded, least recently used entries are deleted first.
+ */
+public class HttpCache {
+
+    private static final String LOG_TAG = HttpCache.class.getName();
+    private static final String CACHE_DIR = "http";
+    private static final String META_SUFFIX = ".meta";
+    private static final String BODY_SUFFIX = ".body";
+    private static final long MAX_DISK_BYTES = 4 * 1024 * 1024;
+
+    private static HttpCache sInstance;
+
+    private final File mDirectory;
+    private final DiskLru mDisk;
+
+    //Bandwidth counters
+    private final AtomicLong mNetworkBytes = new AtomicLong();
+    private final AtomicLong mBytesSaved = new AtomicLong();
+    private final AtomicLong mNotModifiedCount = new AtomicLong();
+
+    /**
+     * Stored validators of the cached response
+     */
+    public static class Entry {
+        private final String mETag, mLastModified;
+        private final File mBody;
+
+        Entry(String eTag, String lastModified, File body) {
+            mETag = eTag;
+            mLastModified = lastModified;
+            mBody = body;
+        }
+
+        public String getETag() {
+            return mETag;
+        }
+
+        public String getLastModified() {
+            return mLastModified;
+        }
+
+        public long getBodyLength() {
+            return mBody.length();
+        }
+    }
+
+    /**
+     * @param maxBytes - size of stored bodies and validators above which entries are deleted
+     */
+    HttpCache(File directory, long maxBytes) {
+        mDirectory = directory;
+        mDisk = new DiskLru(directory, maxBytes) {
+            @Override
+            protected long evict(File file) {
+                // Entry age is the age of its body, meta file is deleted with it
+                String name = file.getName();
+                if (!name.endsWith(BODY_SUFFIX)) return 0;
+                File meta = new File(mDirectory,
+                        name.substring(0, name.length() - BODY_SUFFIX.length()) + META_SUFFIX);
+                return deleteFile(meta) + deleteFile(file);
+            }
+        };
+    }
+
+    public static synchronized HttpCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new HttpCache(new File(context.getCacheDir(), CACHE_DIR), MAX_DISK_BYTES);
+        }
+        return sInstance;
+    }
+
+    /**
+     * @return stored entry for url or null
+     */
+    public Entry get(String url) {
+        File meta = file(url, META_SUFFIX);
+        File body = file(url, BODY_SUFFIX);
+        if (!meta.exists() || !body.exists()) return null;
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(meta)));
+            String storedUrl = in.readUTF();
+            String eTag = in.readUTF();
+            String lastModified = in.readUTF();
+            // Hash collision of two urls
+            if (!storedUrl.equals(url)) return null;
+            // Keeps recently used entries in the cache
+            body.setLastModified(System.currentTimeMillis());
+            return new Entry(
+                    eTag.isEmpty() ? null : eTag,
+                    lastModified.isEmpty() ? null : lastModified,
+                    body);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading cache entry", e);
+            return null;
+        } finally {
+            DiskLru.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Open stored body of the entry, used on 304 Not Modified
+     */
+    public InputStream openBody(Entry entry) throws FileNotFoundException {
+        return new BufferedInputStream(new FileInputStream(entry.mBody));
+    }
+
+    /**
+     * Start writing of a new response. Returned stream copies everything read
+     * through it into the cache, body is published only after {@link Editor#commit()}.
+     */
+    public Editor edit(String url, String eTag, String lastModified, InputStream in)
+            throws IOException {
+        return new Editor(url, eTag, lastModified, in);
+    }
+
+    /**
+     * Record a full response
+     *
+     * @param networkBytes - bytes received from the socket
+     * @param decodedBytes - bytes after gzip decoding
+     */
+    public void recordResponse(long networkBytes, long decodedBytes) {
+        mNetworkBytes.addAndGet(networkBytes);
+        if (decodedBytes > networkBytes) mBytesSaved.addAndGet(decodedBytes - networkBytes);
+    }
+
+    /**
+     * Record 304 answer, stored body didn't go over the network
+     */
+    public void recordNotModified(Entry entry) {
+        mNotModifiedCount.incrementAndGet();
+        mBytesSaved.addAndGet(entry.getBodyLength());
+    }
+
+    public long getNetworkBytes() {
+        return mNetworkBytes.get();
+    }
+
+    public long getBytesSaved() {
+        return mBytesSaved.get();
+    }
+
+    public long getNotModifiedCount() {
+        return mNotModifiedCount.get();
+    }
+
+    private File file(String url, String suffix) {
+        return new File(mDirectory, Integer.toHexString(url.hashCode()) + suffix);
+    }
+
+    /**
+     * Tee of the response stream into a temporary file
+     */
+    public class Editor extends FilterInputStream {
+
+        private final String mUrl, mETag, mLastModified;
+        private final File mTemp;
+        private final OutputStream mOut;
+        private boolean mFailed, mDone;
+
+        private Editor(String url, String eTag, String lastModified, InputStream in)
+                throws IOException {
+            super(in);
+            mUrl = url;
+            mETag = eTag;
+            mLastModified = lastModified;
+            mTemp = file(url, BODY_SUFFIX + DiskLru.TEMP_SUFFIX);
+            mOut = new BufferedOutputStream(new FileOutputStream(mTemp));
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) write(new byte[]{(byte) b}, 0, 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) write(buffer, offset, read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes would be lost in cached copy
+            mFailed = true;
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void write(byte[] buffer, int offset, int length) {
+            if (mFailed) return;
+            try {
+                mOut.write(buffer, offset, length);
+            } catch (IOException e) {
+                mFailed = true;
+            }
+        }
+
+        /**
+         * Publish written body and validators. Call after the response was fully read.
+         */
+        public void commit() {
+            if (mDone) return;
+            mDone = true;
+            try {
+                mOut.close();
+            } catch (IOException e) {
+                mFailed = true;
+            }
+            if (mFailed) {
+                mTemp.delete();
+                return;
+            }
+
+            // Old validators are dropped before the body is replaced and new ones are
+            // written after it, so an interrupted commit never pairs them with a wrong body
+            File metaFile = file(mUrl, META_SUFFIX);
+            File bodyFile = file(mUrl, BODY_SUFFIX);
+            mDisk.delete(metaFile);
+            if (!mDisk.publish(mTemp, bodyFile)) return;
+
+            File metaTemp = file(mUrl, META_SUFFIX + DiskLru.TEMP_SUFFIX);
+            DataOutputStream meta = null;
+            try {
+                meta = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(metaTemp)));
+                meta.writeUTF(mUrl);
+                meta.writeUTF(mETag == null ? "" : mETag);
+                meta.writeUTF(mLastModified == null ? "" : mLastModified);
+                meta.close();
+                meta = null;
+                if (!mDisk.publish(metaTemp, metaFile)) {
+                    mDisk.delete(bodyFile);
+                    return;
+                }
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem writing cache entry", e);
+                mDisk.delete(bodyFile);
+                return;
+            } finally {
+                DiskLru.closeQuietly(meta);
+                metaTemp.delete();
+            }
+            mDisk.trim();
+        }
+
+        /**
+         * Drop written body if it was not committed
+         */
+        public void abort() {
+            if (mDone) return;
+            mDone = true;
+            DiskLru.closeQuietly(mOut);
+            mTemp.delete();
+        }
+    }
+}
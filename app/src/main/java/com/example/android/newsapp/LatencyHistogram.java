@@ -0,0 +1,66 @@
+package com.example.android.newsapp;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with fixed millisecond buckets.
+ * Percentiles are reported as the upper bound of the bucket holding the rank.
+ */
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS = {
+            1, 2, 5, 10, 20, 50, 75, 100, 150, 200, 300, 500, 750, 1000,
+            1500, 2000, 3000, 5000, 7500, 10000, 15000, 20000, 30000, 60000
+    };
+
+    // Last bucket holds values above the highest bound
+    private final AtomicLongArray mCounts = new AtomicLongArray(BOUNDS.length + 1);
+
+    public void record(long millis) {
+        int index = Arrays.binarySearch(BOUNDS, millis);
+        if (index < 0) index = -index - 1;
+        mCounts.incrementAndGet(index);
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < mCounts.length(); i++) count += mCounts.get(i);
+        return count;
+    }
+
+    /**
+     * @param percentile - 0..100
+     * @return upper bound of the bucket in ms, -1 if nothing recorded,
+     * Long.MAX_VALUE above the highest bound
+     */
+    public long percentile(double percentile) {
+        long[] counts = new long[mCounts.length()];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = mCounts.get(i);
+            total += counts[i];
+        }
+        if (total == 0) return -1;
+
+        long rank = (long) Math.ceil(percentile / 100 * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return i < BOUNDS.length ? BOUNDS[i] : Long.MAX_VALUE;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("count", count());
+        json.put("p50", percentile(50));
+        json.put("p95", percentile(95));
+        json.put("p99", percentile(99));
+        return json;
+    }
+}
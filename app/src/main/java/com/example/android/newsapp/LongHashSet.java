@@ -0,0 +1,70 @@
+package com.example.android.newsapp;
+
+/**
+ * Compact set of long ids, open addressing over a long array.
+ * Takes one or two array slots per id instead of a boxed Long with a HashMap entry.
+ */
+class LongHashSet {
+
+    //Free slot marker, the 0 key is kept in a flag
+    private static final long FREE = 0;
+
+    private long[] mKeys = new long[16];
+    private int mSize;
+    private boolean mHasZero;
+
+    /**
+     * @return true if the id was not in the set
+     */
+    boolean add(long key) {
+        if (key == FREE) {
+            if (mHasZero) return false;
+            mHasZero = true;
+            mSize++;
+            return true;
+        }
+        // Keep load factor under 3/4
+        if ((mSize + 1) * 4 > mKeys.length * 3) grow();
+        int slot = slotOf(mKeys, key);
+        if (mKeys[slot] == key) return false;
+        mKeys[slot] = key;
+        mSize++;
+        return true;
+    }
+
+    boolean contains(long key) {
+        if (key == FREE) return mHasZero;
+        return mKeys[slotOf(mKeys, key)] == key;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    void clear() {
+        mKeys = new long[16];
+        mSize = 0;
+        mHasZero = false;
+    }
+
+    private void grow() {
+        long[] keys = new long[mKeys.length * 2];
+        for (long key : mKeys) {
+            if (key != FREE) keys[slotOf(keys, key)] = key;
+        }
+        mKeys = keys;
+    }
+
+    /**
+     * @return slot holding the key or the free slot where it belongs
+     */
+    private static int slotOf(long[] keys, long key) {
+        int mask = keys.length - 1;
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
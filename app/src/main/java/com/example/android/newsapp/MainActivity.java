@@ -1,9 +1,8 @@
 package com.example.android.newsapp;
 
-import android.app.LoaderManager;
+import android.arch.lifecycle.Observer;
 import android.content.Context;
 import android.content.Intent;
-import android.content.Loader;
 import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
@@ -11,40 +10,74 @@ import android.net.Uri;
 import android.preference.PreferenceManager;
 import android.support.v4.widget.SwipeRefreshLayout;
 import android.support.v7.app.AppCompatActivity;
+import android.os.Build;
 import android.os.Bundle;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.TextView;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 public class MainActivity extends AppCompatActivity
-        implements LoaderManager.LoaderCallbacks<List<News>>, SwipeRefreshLayout.OnRefreshListener {
+        implements SwipeRefreshLayout.OnRefreshListener {
 
-    private static final int ASYNC_LOADER_ID = 1;
-    private static final String ENDPOINT = "https://content.guardianapis.com/";
+    private static final String ENDPOINT = BuildConfig.NEWS_ENDPOINT;
     private static final String API_KEY_PARAMETER = "api-key";
     private static final String PAGE_PARAMETER = "page";
+    private static final String PAGE_SIZE_PARAMETER = "page-size";
     private static final String SHOW_FIELDS_PARAMETER = "show-fields";
+    private static final String FROM_DATE_PARAMETER = "from-date";
+    private static final String ORDER_BY_PARAMETER = "order-by";
+    private static final String ORDER_BY_NEWEST = "newest";
     private static final String SHOW_FIELDS_BYLINE = "byline";
     private static final String SHOW_FIELDS_TRAILTEXT = "trailText";
+    private static final String SHOW_FIELDS_THUMBNAIL = "thumbnail";
+    //Rows before the end of the list to start loading next pages
+    private static final int PREFETCH_DISTANCE = 10;
+    //News per load of multi-section feed, same as API default page size
+    private static final int MULTI_SECTION_CHUNK = 10;
+    //Pages kept in memory on each side of the visible rows
+    private static final int WINDOW_KEEP_PAGES = 3;
+    //Rows saved for the next cold start
+    private static final int SNAPSHOT_ROWS = 10;
+    //Max news per delta refresh, the API page size limit
+    private static final int DELTA_PAGE_SIZE = 50;
+    //Top visible articles saved for the reader
+    private static final int PREFETCH_ARTICLES = 5;
 
     private static String API_KEY;
     private RecyclerView mRecyclerView;
     private NewsRecyclerAdapter mRecyclerAdapter;
     private LinearLayoutManager mLinearLayoutManager;
     private TextView mEmptyStateTextView;
-    private List<News> mNewsList;
+    private NewsPageWindow mNewsWindow;
     private SwipeRefreshLayout mSwipeRefreshLayout;
-    private LoaderManager mLoaderManager;
+    private NewsPrefetcher mPrefetcher;
+    private ArticlePrefetcher mArticlePrefetcher;
+    private Set<String> mSections;
+    private MultiSectionFeed mMultiSectionFeed;
+    private FeedSnapshot mFeedSnapshot;
+    private boolean mShowingSnapshot;
+    private FeedRepository mRepository;
+    //Page size, prefetch depth and fields of the current feed session
+    private FetchPolicy mPolicy = FetchPolicy.DEFAULT;
+    //Load of the page the user waits for, null if nothing is loading
+    private FeedCall<?> mPageCall;
+    //Position of the single-section feed, replaced when the first page is shown
+    private FeedCursor mCursor = new FeedCursor(FetchPolicy.DEFAULT_PAGE_SIZE);
     private String mRequest, mCategory;
     private int pageNumber;
     private int totalPages;
-    private boolean loadingState, isNightModeEnabled;
+    private boolean loadingState, isNightModeEnabled, forceRefresh;
     private static ArrayList<String> mShowFieldsParams;
 
     /**
@@ -53,10 +86,41 @@ public class MainActivity extends AppCompatActivity
      * @param page
      * @return
      */
-    private static String constructUrl(int page, String section) {
+    private String constructUrl(int page, String section) {
+        return constructUrl(page, section, mPolicy.getPageSize());
+    }
+
+    private String constructUrl(int page, String section, int pageSize) {
+        List<String> showFields = mShowFieldsParams;
+        if (!mPolicy.isTrailTextAllowed() || !mPolicy.isThumbnailsAllowed()) {
+            showFields = new ArrayList<>(showFields);
+            if (!mPolicy.isTrailTextAllowed()) showFields.remove(SHOW_FIELDS_TRAILTEXT);
+            if (!mPolicy.isThumbnailsAllowed()) showFields.remove(SHOW_FIELDS_THUMBNAIL);
+        }
+        return constructUrl(page, section, pageSize, showFields, API_KEY);
+    }
+
+    /**
+     * Construct request URL outside of the activity, e.g. for background sync
+     *
+     * @param context
+     * @param page
+     * @param section
+     * @return
+     */
+    static String constructUrl(Context context, int page, String section) {
+        SharedPreferences sharedPreferences = PreferenceManager
+                .getDefaultSharedPreferences(context);
+        return constructUrl(page, section, FetchPolicy.DEFAULT_PAGE_SIZE,
+                showFieldsParams(context, sharedPreferences),
+                context.getString(R.string.API_KEY));
+    }
+
+    private static String constructUrl(int page, String section, int pageSize,
+                                       List<String> showFields, String apiKey) {
 
         //Setup a show-fields params
-        String showFieldsParams = android.text.TextUtils.join(",", mShowFieldsParams);
+        String showFieldsParams = android.text.TextUtils.join(",", showFields);
 
         //Set search section name for "all" category
         if(section.equals("all")) section = "search";
@@ -66,13 +130,49 @@ public class MainActivity extends AppCompatActivity
         Uri.Builder builder = endpoint.buildUpon();
         builder.appendPath(section);
         builder.appendQueryParameter(PAGE_PARAMETER, String.valueOf(page));
+        if (pageSize != FetchPolicy.DEFAULT_PAGE_SIZE) {
+            builder.appendQueryParameter(PAGE_SIZE_PARAMETER, String.valueOf(pageSize));
+        }
+        //Pages are followed by FeedCursor, which needs newest first order
+        builder.appendQueryParameter(ORDER_BY_PARAMETER, ORDER_BY_NEWEST);
         builder.appendQueryParameter(SHOW_FIELDS_PARAMETER, showFieldsParams);
-        builder.appendQueryParameter(API_KEY_PARAMETER, API_KEY);
+        builder.appendQueryParameter(API_KEY_PARAMETER, apiKey);
         String request = builder.toString();
 
         return request;
     }
 
+    /**
+     * Construct URL of news published since the given time, newest first
+     *
+     * @param since - publication time of the newest loaded news
+     * @return
+     */
+    private String constructNewerUrl(String section, long since) {
+        // API filters by day, older news of that day are dropped after the fetch
+        String fromDate = News.formatDate(since).substring(0, 10);
+        return Uri.parse(constructUrl(1, section, DELTA_PAGE_SIZE)).buildUpon()
+                .appendQueryParameter(FROM_DATE_PARAMETER, fromDate)
+                .build().toString();
+    }
+
+    /**
+     * Show-fields params from preferences
+     */
+    private static ArrayList<String> showFieldsParams(Context context,
+                                                      SharedPreferences sharedPreferences) {
+        ArrayList<String> showFieldsParams = new ArrayList<>();
+        showFieldsParams.add(SHOW_FIELDS_BYLINE);
+        showFieldsParams.add(SHOW_FIELDS_THUMBNAIL);
+
+        // Trail text checkbox Preference logic
+        if(sharedPreferences.getBoolean(context.getString(R.string.settings_trail_text_key),
+                false)){
+            showFieldsParams.add(SHOW_FIELDS_TRAILTEXT);
+        }
+        return showFieldsParams;
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -91,34 +191,47 @@ public class MainActivity extends AppCompatActivity
 
         //SET VIEW
         setContentView(R.layout.activity_main);
+        getWindow().getDecorView().getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        getWindow().getDecorView().getViewTreeObserver()
+                                .removeOnPreDrawListener(this);
+                        StartupTimer.markFirstFrame();
+                        return true;
+                    }
+                });
 
         mCategory = sharedPreferences.getString(
                 getString(R.string.settings_category_key),
                 getString(R.string.settings_category_default)
         );
 
-        //Set List for show-field Params.
-        mShowFieldsParams = new ArrayList<>();
-        mShowFieldsParams.add(SHOW_FIELDS_BYLINE);
+        //Several sections in one feed
+        mSections = sharedPreferences.getStringSet(
+                getString(R.string.settings_sections_key),
+                Collections.<String>emptySet());
 
-        // Trail text checkbox Preference logic
-        if(sharedPreferences.getBoolean(getString(R.string.settings_trail_text_key),
-                false)){
-            mShowFieldsParams.add(SHOW_FIELDS_TRAILTEXT);
-        } else {
-            mShowFieldsParams.remove(SHOW_FIELDS_TRAILTEXT);
-        }
+        //Set List for show-field Params.
+        mShowFieldsParams = showFieldsParams(this, sharedPreferences);
 
         //Getting API_KEY
         API_KEY = getString(R.string.API_KEY);
 
+        //Keep the store warm for the next start
+        FeedSync.schedule(this);
+
+        mRepository = FeedRepository.getInstance(this);
+
         //Number Of Page for API Request
         resetPageCounter();
+        choosePolicy();
+        resetMultiSectionFeed();
         //Set loading state
         loadingState = false;
 
-        //Set ArrayList for News
-        mNewsList = new ArrayList<>();
+        //Set paging window for News
+        mNewsWindow = new NewsPageWindow(WINDOW_KEEP_PAGES);
 
         //Set Empty View for empty list
         mEmptyStateTextView = (TextView) findViewById(R.id.not_found);
@@ -132,34 +245,136 @@ public class MainActivity extends AppCompatActivity
 
         //Recycler init
         mRecyclerView = findViewById(R.id.news_recycle);
-        mRecyclerAdapter = new NewsRecyclerAdapter(this, mNewsList);
+        mRecyclerAdapter = new NewsRecyclerAdapter(this);
         if (mRecyclerView != null) {
             mLinearLayoutManager = new LinearLayoutManager(getApplicationContext());
             mRecyclerView.setLayoutManager(mLinearLayoutManager);
             mRecyclerView.setAdapter(mRecyclerAdapter);
+            mPrefetcher = new NewsPrefetcher(this, mLinearLayoutManager,
+                    new NewsPrefetcher.UrlFactory() {
+                        @Override
+                        public String pageUrl(int page) {
+                            return constructUrl(page, mCategory);
+                        }
+                    },
+                    new NewsPrefetcher.Listener() {
+                        @Override
+                        public void onNearEnd() {
+                            showPrefetchedPage();
+                        }
+
+                        @Override
+                        public void onPageReady(int page) {
+                            // User is already waiting at the bottom
+                            if (!mRecyclerView.canScrollVertically(1)) showPrefetchedPage();
+                        }
+                    },
+                    PREFETCH_DISTANCE, mPolicy.getPrefetchDepth());
+            mRecyclerView.addOnScrollListener(mPrefetcher);
+            mArticlePrefetcher = new ArticlePrefetcher(this, PREFETCH_ARTICLES);
             mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
                 @Override
                 public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
                     super.onScrollStateChanged(recyclerView, newState);
 
+                    if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                        updateWindow();
+                        prefetchArticles();
+                    }
+
                     //Set handling scroll recycle to bottom
                     if (!recyclerView.canScrollVertically(1)) {
-                        if (isConnected() && mNewsList.size() != 0) {
+                        // Repository falls back to cached pages when offline
+                        if (!mNewsWindow.isEmpty()) {
                             loadMore();
-                        } else if (isConnected() && mNewsList.size() == 0) {
-                            startLoad();
                         } else {
-                            notConnected();
-                            loader("destroy");
-                            resetPageCounter();
+                            startLoad();
                         }
                     }
                 }
             });
         }
+
+        // Show last visible rows while the first page is loading
+        mFeedSnapshot = new FeedSnapshot(this);
+        restoreSnapshot();
         startLoad();
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        saveSnapshot();
+        mArticlePrefetcher.cancel();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Prefetch calls are observed forever and hold this activity as their listener
+        if (mPrefetcher != null) {
+            mRecyclerView.removeOnScrollListener(mPrefetcher);
+            mPrefetcher.reset();
+        }
+    }
+
+    /**
+     * Section key of the feed, also used for the snapshot
+     */
+    private String feedKey() {
+        return mMultiSectionFeed != null ? mMultiSectionFeed.getKey() : mCategory;
+    }
+
+    /**
+     * Read snapshot in background and show it if nothing is loaded yet
+     */
+    private void restoreSnapshot() {
+        final String key = feedKey();
+        NewsHttpClient.getInstance().getDispatcher().execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<News> news = mFeedSnapshot.load(key);
+                if (news == null || news.isEmpty()) return;
+                NewsDisplay.prepare(getApplicationContext(), news);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!mNewsWindow.isEmpty() || isFinishing()) return;
+                        // Refresh spinner stays on until loaded data replaces the snapshot
+                        mShowingSnapshot = true;
+                        mNewsWindow.addPage(pageNumber, news);
+                        mRecyclerAdapter.submitList(mNewsWindow.snapshot());
+                        mEmptyStateTextView.setVisibility(View.GONE);
+                        StartupTimer.markFirstContent();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Save visible rows for the next cold start
+     */
+    private void saveSnapshot() {
+        int first = mLinearLayoutManager.findFirstVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) return;
+
+        final List<News> rows = new ArrayList<>();
+        List<News> all = mNewsWindow.snapshot();
+        for (int i = first; i < all.size() && rows.size() < SNAPSHOT_ROWS; i++) {
+            if (all.get(i) != null) rows.add(all.get(i));
+        }
+        if (rows.isEmpty()) return;
+
+        final String key = feedKey();
+        NewsHttpClient.getInstance().getDispatcher().execute(new Runnable() {
+            @Override
+            public void run() {
+                mFeedSnapshot.save(key, rows);
+            }
+        });
+    }
+
     /**
      * Create Settings menu
      * @param menu
@@ -177,92 +392,307 @@ public class MainActivity extends AppCompatActivity
         if(id == R.id.action_settings){
             Intent settingsIntent = new Intent(this, SettingsActivity.class);
             startActivity(settingsIntent);
+        } else if (id == R.id.action_search) {
+            startActivity(new Intent(this, SearchActivity.class));
+        } else if (id == R.id.action_metrics) {
+            startActivity(new Intent(this, MetricsActivity.class));
         }
 
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Metrics report for "adb shell dumpsys activity com.example.android.newsapp"
+     */
     @Override
-    public Loader<List<News>> onCreateLoader(int id, Bundle args) {
-        return new NewsLoader(this, mRequest);
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.print(prefix);
+        writer.println("Feed metrics:");
+        writer.println(MetricsActivity.report(this));
     }
 
-    @Override
-    public void onLoadFinished(Loader<List<News>> loader, List<News> newsData) {
+    /**
+     * Load current page, the previous load is cancelled.
+     * Result is delivered while the activity is started, the load is cancelled on destroy.
+     */
+    private void load() {
+        if (mPageCall != null) mPageCall.cancel();
+
+        final FeedCall<NewsPage> call;
+        if (mMultiSectionFeed != null) {
+            call = mRepository.loadChunk(mMultiSectionFeed, MULTI_SECTION_CHUNK, pageNumber,
+                    isConnected());
+        } else {
+            call = mRepository.loadPage(mRequest, mPolicy.storeKey(mCategory), pageNumber,
+                    isConnected(), forceRefresh, FeedRepository.PRIORITY_VISIBLE);
+        }
+        mPageCall = call;
+        call.observe(this, new Observer<NewsPage>() {
+            @Override
+            public void onChanged(NewsPage page) {
+                if (call != mPageCall) return;
+                mPageCall = null;
+                onPageLoaded(page);
+            }
+        });
+    }
+
+    private void onPageLoaded(NewsPage page) {
+        List<News> newsData = page != null ? page.getNews() : null;
         //Set text for empty view
         mEmptyStateTextView.setText(R.string.news_not_found);
         // Set total pages
-        totalPages = Utils.getMaxPages();
+        if (mMultiSectionFeed != null) {
+            // Sections are paginated inside the feed, keep one page ahead while it has more
+            totalPages = mMultiSectionFeed.hasMore() ? pageNumber + 1 : pageNumber;
+        } else {
+            totalPages = Utils.getMaxPages();
+        }
         //Show swipe
         mSwipeRefreshLayout.setRefreshing(true);
+        forceRefresh = false;
+        mShowingSnapshot = false;
 
         if (newsData != null && !newsData.isEmpty()) {
+            // Replace stale list only once refreshed data is here
+            if (pageNumber == 1) {
+                mNewsWindow.clear();
+                mCursor = new FeedCursor(mPolicy.getPageSize());
+            }
 
-            // Refresh data in recycler
-            mNewsList.addAll(newsData);
-            mRecyclerAdapter.notifyDataSetChanged();
-            // off the swipe progress
-            mSwipeRefreshLayout.setRefreshing(false);
-            mEmptyStateTextView.setVisibility(View.GONE);
-            loadingState = false;
+            boolean firstPage = pageNumber == 1;
+            showPage(newsData);
+            if (!page.isFromStore()) {
+                markFreshContent();
+            } else if (firstPage && page instanceof NewsStore.CachedPage
+                    && ((NewsStore.CachedPage) page).isStale() && canRefreshNewer()) {
+                // Stale stored page was shown, bring in what the network has on top of it
+                refreshNewer();
+            }
         } else {
-            mEmptyStateTextView.setVisibility(View.VISIBLE);
             mSwipeRefreshLayout.setRefreshing(false);
+            loadingState = false;
+            // Page was not loaded, allow to retry it on next scroll
+            if (pageNumber > 1) pageNumber--;
+            if (!isConnected()) {
+                notConnected();
+            } else if (mNewsWindow.isEmpty()) {
+                mEmptyStateTextView.setVisibility(View.VISIBLE);
+            }
         }
     }
 
-    @Override
-    public void onLoaderReset(Loader<List<News>> loader) {
-        mNewsList.clear();
+    /**
+     * Append loaded page to the list
+     */
+    private void showPage(List<News> newsData) {
+        if (mMultiSectionFeed == null) {
+            // Drop news already in the list, the feed may have moved since the last page
+            newsData = mCursor.accept(pageNumber, newsData);
+            if (newsData.isEmpty()) {
+                mSwipeRefreshLayout.setRefreshing(false);
+                loadingState = false;
+                loadMore();
+                return;
+            }
+        }
+        // Refresh data in recycler
+        mNewsWindow.addPage(pageNumber, newsData);
+        mRecyclerAdapter.submitList(mNewsWindow.snapshot());
+        // off the swipe progress
+        mSwipeRefreshLayout.setRefreshing(false);
+        mEmptyStateTextView.setVisibility(View.GONE);
+        loadingState = false;
+        if (mMultiSectionFeed == null) {
+            mPrefetcher.update(mPolicy.storeKey(mCategory), mCursor.nextPage() - 1, totalPages);
+        }
+        StartupTimer.markFirstContent();
+    }
+
+    /**
+     * Append next page if it is already in prefetch buffer
+     */
+    private void showPrefetchedPage() {
+        int next = nextPage();
+        if (loadingState || totalPages < next) return;
+        List<News> ready = mPrefetcher.take(next);
+        if (ready != null) {
+            pageNumber = next;
+            showPage(ready);
+        }
+    }
+
+    /**
+     * Page to load after the shown ones, pages of one section follow the cursor
+     */
+    private int nextPage() {
+        return mMultiSectionFeed != null ? pageNumber + 1 : mCursor.nextPage();
+    }
+
+    /**
+     * Evict pages far from the viewport and reload evicted pages which came back into it
+     */
+    private void updateWindow() {
+        int first = mLinearLayoutManager.findFirstVisibleItemPosition();
+        int last = mLinearLayoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) return;
+
+        List<Integer> reload = mNewsWindow.onVisibleRange(first, last);
+        mRecyclerAdapter.submitList(mNewsWindow.snapshot());
+
+        final boolean online = isConnected();
+        for (final int page : reload) {
+            // Merged chunks of multi-section feed are only in the store
+            final String section = mMultiSectionFeed != null
+                    ? mMultiSectionFeed.getKey() : mPolicy.storeKey(mCategory);
+            final String url = mMultiSectionFeed != null ? null : constructUrl(page, mCategory);
+            mRepository.reloadPage(url, section, page, online).observe(this,
+                    new Observer<List<News>>() {
+                        @Override
+                        public void onChanged(List<News> news) {
+                            mNewsWindow.restorePage(page, news);
+                            mRecyclerAdapter.submitList(mNewsWindow.snapshot());
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Save bodies of the visible articles for the reader
+     */
+    private void prefetchArticles() {
+        int first = mLinearLayoutManager.findFirstVisibleItemPosition();
+        int last = mLinearLayoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) return;
+
+        List<News> rows = mNewsWindow.snapshot();
+        mArticlePrefetcher.prefetch(rows.subList(Math.min(first, rows.size()),
+                Math.min(last + 1, rows.size())));
     }
 
     @Override
     public void onRefresh() {
-        if (isConnected()) {
-            resetPageCounter();
-            mNewsList.clear();
-            startLoad();
+        if (isConnected() && canRefreshNewer()) {
+            refreshNewer();
+        } else if (isConnected()) {
+            refreshAll();
         } else {
             notConnected();
-            loader("destroy");
         }
     }
 
     /**
-     * Init loader and first load
+     * Reload the feed from the first page, the list is replaced once the page is here
      */
-    private void startLoad() {
-        // Test a network state
-        if (isConnected()) {
+    private void refreshAll() {
+        resetPageCounter();
+        choosePolicy();
+        resetMultiSectionFeed();
+        mPrefetcher.reset();
+        mPrefetcher.setDepth(mPolicy.getPrefetchDepth());
+        forceRefresh = true;
+        startLoad();
+    }
 
-            mRequest = constructUrl(pageNumber, mCategory);
-            // Loader Init
-            mLoaderManager = getLoaderManager();
-            loader("init");
-            //Hide empty state
-            mEmptyStateTextView.setVisibility(View.GONE);
+    /**
+     * Delta refresh keeps the loaded list, it needs fresh pages of one section
+     */
+    private boolean canRefreshNewer() {
+        return mMultiSectionFeed == null && !mShowingSnapshot && mPageCall == null
+                && !mNewsWindow.isEmpty()
+                && mNewsWindow.getNewestPublishedAt() != Long.MIN_VALUE;
+    }
 
-        } else {
-            notConnected();
+    /**
+     * Fetch only news newer than the loaded ones and put them at the top of the list.
+     * Falls back to full refresh if there are too many new news to close the gap.
+     */
+    private void refreshNewer() {
+        final FeedCall<List<News>> call = mRepository.loadNewer(
+                constructNewerUrl(mCategory, mNewsWindow.getNewestPublishedAt()),
+                mPolicy.storeKey(mCategory));
+        mPageCall = call;
+        call.observe(this, new Observer<List<News>>() {
+            @Override
+            public void onChanged(List<News> newsData) {
+                if (call != mPageCall) return;
+                mPageCall = null;
+                mSwipeRefreshLayout.setRefreshing(false);
+                if (newsData == null || newsData.isEmpty()) return;
+                markFreshContent();
+
+                List<News> newer = mNewsWindow.prependNewer(newsData, DELTA_PAGE_SIZE);
+                if (newer == null) {
+                    // More new news than one request returns, reload from the first page
+                    mSwipeRefreshLayout.setRefreshing(true);
+                    refreshAll();
+                } else if (!newer.isEmpty()) {
+                    showPrepended(newer);
+                }
+            }
+        });
+    }
+
+    /**
+     * Mark startup time of the first news which came from the network
+     */
+    private void markFreshContent() {
+        if (StartupTimer.markFreshContent()
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            reportFullyDrawn();
         }
     }
 
+    /**
+     * Show news prepended to the window, keeping the current scroll position.
+     * If the top of the list is visible, it moves to the first inserted news.
+     */
+    private void showPrepended(List<News> news) {
+        if (mLinearLayoutManager.findFirstCompletelyVisibleItemPosition() == 0) {
+            mRecyclerAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+                @Override
+                public void onItemRangeInserted(int positionStart, int itemCount) {
+                    mRecyclerAdapter.unregisterAdapterDataObserver(this);
+                    if (positionStart == 0) mRecyclerView.scrollToPosition(0);
+                }
+            });
+        }
+        mCursor.markSeen(news);
+        mRecyclerAdapter.submitList(mNewsWindow.snapshot());
+    }
+
+    /**
+     * Start first load
+     */
+    private void startLoad() {
+        // Offline start is served from the article store
+        mRequest = constructUrl(pageNumber, mCategory);
+        load();
+        //Hide empty state
+        mEmptyStateTextView.setVisibility(View.GONE);
+    }
+
     /**
      * Load more pages from API
      * <p>
-     * Running if previous loading complete and last page number less than response.pages
+     * Running if previous loading complete and the next page is within response.pages
      */
     private void loadMore() {
-
-        if (!loadingState && totalPages > pageNumber) {
-            pageNumber++;
+        // Snapshot rows are replaced by the first page, don't paginate after them
+        if (mShowingSnapshot) return;
+
+        int next = nextPage();
+        if (!loadingState && totalPages >= next) {
+            List<News> ready = mPrefetcher.take(next);
+            pageNumber = next;
+            if (ready != null) {
+                showPage(ready);
+                return;
+            }
             loadingState = true;
             mRequest = constructUrl(pageNumber, mCategory);
-            if (isConnected()) {
-                loader("restart");
-            } else {
-                notConnected();
-            }
+            load();
         }
     }
 
@@ -284,37 +714,14 @@ public class MainActivity extends AppCompatActivity
     }
 
     /**
-     * Run loader init or restart
-     *
-     * @param event - if init - loader will be init, else - restarted
-     */
-    private void loader(String event) {
-
-        switch (event) {
-            case "init":
-                if (mLoaderManager.getLoader(ASYNC_LOADER_ID) != null)
-                    mLoaderManager.destroyLoader(ASYNC_LOADER_ID);
-                mLoaderManager.initLoader(ASYNC_LOADER_ID, null, this);
-                break;
-            case "destroy":
-                if (mLoaderManager.getLoader(ASYNC_LOADER_ID) != null)
-                    mLoaderManager.destroyLoader(ASYNC_LOADER_ID);
-                break;
-            default:
-                mLoaderManager.restartLoader(ASYNC_LOADER_ID, null, this);
-                break;
-        }
-    }
-
-    /**
-     * Handler if have no connection state
+     * Handler if have no connection state. Cached news stay on the screen.
      */
     private void notConnected() {
         mSwipeRefreshLayout.setRefreshing(false);
-        mEmptyStateTextView.setVisibility(View.VISIBLE);
-        mEmptyStateTextView.setText(R.string.no_internet);
-        mNewsList.clear();
-        mRecyclerAdapter.notifyDataSetChanged();
+        if (mNewsWindow.isEmpty()) {
+            mEmptyStateTextView.setVisibility(View.VISIBLE);
+            mEmptyStateTextView.setText(R.string.no_internet);
+        }
     }
 
     /**
@@ -324,4 +731,29 @@ public class MainActivity extends AppCompatActivity
         pageNumber = 1;
         totalPages = 2;
     }
+
+    /**
+     * Start multi-section feed from the first pages, if two or more sections are chosen
+     */
+    private void resetMultiSectionFeed() {
+        if (mSections.size() < 2) {
+            mMultiSectionFeed = null;
+            return;
+        }
+        mMultiSectionFeed = new MultiSectionFeed(this, mSections,
+                new MultiSectionFeed.UrlFactory() {
+                    @Override
+                    public String pageUrl(String section, int page) {
+                        return constructUrl(page, section);
+                    }
+                }, mPolicy);
+    }
+
+    /**
+     * Choose page size, prefetch depth and fields from measured network conditions.
+     * Called when the feed starts from the first page, page boundaries don't change later.
+     */
+    private void choosePolicy() {
+        mPolicy = NetworkEstimator.getInstance().choosePolicy(this);
+    }
 }
@@ -0,0 +1,64 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import android.widget.TextView;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Debug screen with the network and parse metrics report of the feed
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    private static final String LOG_TAG = MetricsActivity.class.getName();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        TextView reportView = (TextView) findViewById(R.id.metrics_report);
+        reportView.setText(report(this));
+    }
+
+    /**
+     * @return JSON report of request metrics, http cache counters and heap usage
+     */
+    static String report(Context context) {
+        try {
+            JSONObject report = FeedMetrics.getInstance().toJson();
+            HttpCache httpCache = HttpCache.getInstance(context);
+            JSONObject cache = new JSONObject();
+            cache.put("networkBytes", httpCache.getNetworkBytes());
+            cache.put("bytesSaved", httpCache.getBytesSaved());
+            cache.put("notModified", httpCache.getNotModifiedCount());
+            report.put("httpCache", cache);
+            report.put("coalescedLoads", FeedRepository.getCoalescedCount());
+            report.put("network", NetworkEstimator.getInstance().toJson());
+            JSONObject snapshot = new JSONObject();
+            snapshot.put("bytes", FeedSnapshot.getLastOpenBytes());
+            long openNanos = FeedSnapshot.getLastOpenNanos();
+            snapshot.put("openMicros", openNanos < 0 ? -1 : openNanos / 1000);
+            report.put("snapshot", snapshot);
+
+            // Heap growth over a long pagination run
+            Runtime runtime = Runtime.getRuntime();
+            JSONObject memory = new JSONObject();
+            memory.put("usedBytes", runtime.totalMemory() - runtime.freeMemory());
+            memory.put("maxBytes", runtime.maxMemory());
+            report.put("memory", memory);
+            return report.toString(2);
+        } catch (JSONException e) {
+            Log.e(LOG_TAG, "Problem building metrics report", e);
+            return "";
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Feed of several sections shown as one list.
+ * <p>
+ * Every section is paginated independently. Missing section pages are fetched
+ * concurrently on the shared bounded dispatcher, then the section buffers are
+ * k-way merged by webPublicationDate (newest first) and de-duplicated by webUrl.
+ * Section pages are requested through a {@link FeedCursor}, so news published
+ * during the session don't repeat rows.
+ */
+public class MultiSectionFeed {
+
+    private static final String LOG_TAG = MultiSectionFeed.class.getName();
+
+    /**
+     * Builds request url for a page of a section
+     */
+    public interface UrlFactory {
+        String pageUrl(String section, int page);
+    }
+
+    /**
+     * Pagination state of one section
+     */
+    private static class SectionState {
+        final String mSection;
+        final LinkedList<News> mBuffer = new LinkedList<>();
+        final FeedCursor mCursor;
+        int mTotalPages = 1;
+        // Last load failed, the page is retried on the next chunk
+        boolean mRetryLater;
+
+        SectionState(String section, int pageSize) {
+            mSection = section;
+            mCursor = new FeedCursor(pageSize);
+        }
+
+        boolean hasMorePages() {
+            return mCursor.nextPage() <= mTotalPages;
+        }
+
+        boolean isExhausted() {
+            return mBuffer.isEmpty() && !hasMorePages();
+        }
+
+        boolean canLoad() {
+            return mBuffer.isEmpty() && hasMorePages() && !mRetryLater;
+        }
+    }
+
+    private final Context mContext;
+    private final UrlFactory mUrlFactory;
+    private final FetchPolicy mPolicy;
+    private final List<SectionState> mSections = new ArrayList<>();
+    private final LongHashSet mSeenIds = new LongHashSet();
+    private final String mKey;
+    private boolean mLastChunkFromStore;
+    // Published after each chunk, read on main thread without waiting for a running load
+    private volatile boolean mHasMore = true;
+
+    /**
+     * @param policy - page size of the section urls, sets store keys of section pages
+     */
+    public MultiSectionFeed(Context context, Set<String> sections, UrlFactory urlFactory,
+                            FetchPolicy policy) {
+        mContext = context.getApplicationContext();
+        mUrlFactory = urlFactory;
+        mPolicy = policy;
+        List<String> sorted = new ArrayList<>(sections);
+        Collections.sort(sorted);
+        for (String section : sorted) {
+            mSections.add(new SectionState(section, policy.getPageSize()));
+        }
+        mKey = "multi:" + TextUtils.join(",", sorted);
+    }
+
+    /**
+     * @return store key of merged chunks, the same for the same set of sections
+     */
+    public String getKey() {
+        return mKey;
+    }
+
+    /**
+     * @return true if any section page of the last chunk was read from {@link NewsStore}
+     */
+    public synchronized boolean isLastChunkFromStore() {
+        return mLastChunkFromStore;
+    }
+
+    /**
+     * @return true while any section has buffered news or pages to load,
+     * as of the last loaded chunk
+     */
+    public boolean hasMore() {
+        return mHasMore;
+    }
+
+    /**
+     * Load next merged chunk. Runs on background thread.
+     *
+     * @param count  - max number of news to return
+     * @param online - if false only cached section pages are used
+     * @return merged news, empty list if nothing more is available
+     */
+    public synchronized List<News> loadNext(int count, boolean online) {
+        List<News> merged = new ArrayList<>();
+        for (SectionState state : mSections) state.mRetryLater = false;
+        mLastChunkFromStore = false;
+
+        while (merged.size() < count) {
+            fillBuffers(online);
+
+            // Merge while every section which still has pages has a buffered head,
+            // otherwise its next page could hold newer news
+            while (merged.size() < count) {
+                SectionState newest = null;
+                boolean blocked = false;
+                for (SectionState state : mSections) {
+                    if (state.mBuffer.isEmpty()) {
+                        if (state.canLoad()) blocked = true;
+                        continue;
+                    }
+                    if (newest == null || isNewer(state.mBuffer.getFirst(),
+                            newest.mBuffer.getFirst())) {
+                        newest = state;
+                    }
+                }
+                if (blocked || newest == null) break;
+
+                News next = newest.mBuffer.removeFirst();
+                if (mSeenIds.add(next.getId())) merged.add(next);
+            }
+
+            if (!anyLeft() || !canFill()) break;
+        }
+
+        mHasMore = anyLeft();
+        return merged;
+    }
+
+    private boolean anyLeft() {
+        for (SectionState state : mSections) {
+            if (!state.isExhausted()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if an empty buffer can still be refilled
+     */
+    private boolean canFill() {
+        for (SectionState state : mSections) {
+            if (state.canLoad()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Concurrently fetch next page of every section with empty buffer
+     */
+    private void fillBuffers(final boolean online) {
+        List<SectionState> toLoad = new ArrayList<>();
+        List<Callable<NewsPage>> tasks = new ArrayList<>();
+        // Tasks run on other threads, cancelling the chunk call cancels their fetches
+        FeedCall<?> call = FeedCall.current();
+        final RequestHandle caller = call != null ? call.getHandle() : null;
+
+        for (final SectionState state : mSections) {
+            if (!state.canLoad()) continue;
+            final int page = state.mCursor.nextPage();
+            final String url = mUrlFactory.pageUrl(state.mSection, page);
+            final String storeKey = mPolicy.storeKey(state.mSection);
+            toLoad.add(state);
+            tasks.add(new Callable<NewsPage>() {
+                @Override
+                public NewsPage call() {
+                    return FeedRepository.loadNewsPage(mContext, url, storeKey, page,
+                            online, false, caller);
+                }
+            });
+        }
+        if (tasks.isEmpty()) return;
+
+        List<Future<NewsPage>> results;
+        try {
+            results = NewsHttpClient.getInstance().getDispatcher().invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            SectionState state = toLoad.get(i);
+            int page = state.mCursor.nextPage();
+            NewsPage result = null;
+            try {
+                result = results.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Log.e(LOG_TAG, "Problem loading section " + state.mSection, e);
+            }
+
+            if (result != null && !result.getNews().isEmpty()) {
+                if (result.isFromStore()) mLastChunkFromStore = true;
+                state.mTotalPages = result.getTotalPages();
+                // Page of repeats leaves the buffer empty, the next page is loaded then
+                state.mBuffer.addAll(state.mCursor.accept(page, result.getNews()));
+            } else {
+                // Section is unavailable now, don't block the merge on it.
+                // Its pages are kept, the same page is loaded again with the next chunk.
+                state.mRetryLater = true;
+            }
+        }
+    }
+
+    private static boolean isNewer(News first, News second) {
+        return first.getPublishedAt() > second.getPublishedAt();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Bandwidth and latency estimate from the timings of feed requests.
+ * <p>
+ * Keeps exponentially weighted moving averages of time to first byte and of body
+ * throughput, and maps them to a {@link FetchPolicy}: bigger pages and deeper
+ * prefetch on fast links to save round-trips, small pages without trail text and
+ * thumbnails on slow links to get the first rows sooner.
+ */
+public class NetworkEstimator {
+
+    private static final double ALPHA = 0.3;
+    //Smaller bodies are dominated by latency, not bandwidth
+    private static final long MIN_THROUGHPUT_BYTES = 8 * 1024;
+
+    private static final long FAST_THROUGHPUT = 250 * 1024; /* bytes per second */
+    private static final long FAST_FIRST_BYTE = 400; /* milliseconds */
+    private static final long SLOW_THROUGHPUT = 30 * 1024; /* bytes per second */
+    private static final long SLOW_FIRST_BYTE = 1500; /* milliseconds */
+
+    static final FetchPolicy FAST = new FetchPolicy("fast", 30, 3, true, true);
+    static final FetchPolicy NORMAL = new FetchPolicy("normal", 20, 2, true, true);
+    static final FetchPolicy METERED = new FetchPolicy("metered", 10, 1, true, true);
+    static final FetchPolicy SLOW = new FetchPolicy("slow", 10, 1, false, false);
+
+    private static final NetworkEstimator INSTANCE = new NetworkEstimator();
+
+    private double mFirstByteMillis = -1;
+    private double mThroughput = -1;
+    private long mSamples;
+    private FetchPolicy mLastPolicy = FetchPolicy.DEFAULT;
+
+    //Package-private for tests, the app uses the shared instance
+    NetworkEstimator() {
+    }
+
+    public static NetworkEstimator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Add timings of a successful response
+     *
+     * @param firstByteMillis - time from request start to response headers
+     * @param networkBytes    - body bytes read from the socket
+     * @param bodyMillis      - time to read the body
+     */
+    public synchronized void update(long firstByteMillis, long networkBytes, long bodyMillis) {
+        mFirstByteMillis = average(mFirstByteMillis, firstByteMillis);
+        if (networkBytes >= MIN_THROUGHPUT_BYTES) {
+            mThroughput = average(mThroughput, networkBytes * 1000.0 / Math.max(bodyMillis, 1));
+        }
+        mSamples++;
+    }
+
+    /**
+     * Policy for a new feed session
+     */
+    public FetchPolicy choosePolicy(Context context) {
+        ConnectivityManager connectivityManager = (ConnectivityManager)
+                context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        boolean metered = connectivityManager != null
+                && connectivityManager.isActiveNetworkMetered();
+
+        synchronized (this) {
+            mLastPolicy = policy(metered);
+            return mLastPolicy;
+        }
+    }
+
+    FetchPolicy policy(boolean metered) {
+        if (mSamples == 0) return metered ? METERED : FetchPolicy.DEFAULT;
+        if (mFirstByteMillis >= SLOW_FIRST_BYTE
+                || (mThroughput >= 0 && mThroughput < SLOW_THROUGHPUT)) return SLOW;
+        if (metered) return METERED;
+        if (mFirstByteMillis <= FAST_FIRST_BYTE && mThroughput >= FAST_THROUGHPUT) return FAST;
+        return NORMAL;
+    }
+
+    synchronized JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("samples", mSamples);
+        json.put("ttfbMs", Math.round(mFirstByteMillis));
+        json.put("throughputBytesPerSecond", Math.round(mThroughput));
+        JSONObject policy = new JSONObject();
+        policy.put("name", mLastPolicy.getName());
+        policy.put("pageSize", mLastPolicy.getPageSize());
+        policy.put("prefetchDepth", mLastPolicy.getPrefetchDepth());
+        policy.put("trailText", mLastPolicy.isTrailTextAllowed());
+        policy.put("thumbnails", mLastPolicy.isThumbnailsAllowed());
+        json.put("policy", policy);
+        return json;
+    }
+
+    private static double average(double current, double sample) {
+        return current < 0 ? sample : current + ALPHA * (sample - current);
+    }
+}
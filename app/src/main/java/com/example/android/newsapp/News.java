@@ -1,16 +1,60 @@
 package com.example.android.newsapp;
 
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Article of the feed.
+ * <p>
+ * Stored compactly, as feed lists can hold thousands of items: section names,
+ * bylines and url prefixes are shared through a dictionary, publication date is
+ * kept as epoch millis and trail text as UTF-8 bytes decoded on request.
+ */
 public class News {
 
-    private String mTitle, mUrl, mDate, mCategory, mAuthor, mTrailText;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] EMPTY = new byte[0];
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    // Bylines, sections and url prefixes of a few thousand articles
+    private static final int POOL_SIZE = 4096;
+
+    // Values repeated across articles
+    private static final StringPool POOL = new StringPool(POOL_SIZE);
+
+    private final String mTitle, mUrlPrefix, mUrlSlug, mCategory, mAuthor;
+    // Null if the article has no thumbnail
+    private final String mThumbnail;
+    private final byte[] mTrailText;
+    private final long mPublishedAt;
+    // Only set if the date is not in the API format
+    private final String mRawDate;
+    private final long mId;
+    // Prepared in background, see NewsDisplay#prepare
+    private volatile NewsDisplay mDisplay;
 
     public News(String title, String trailText, String url, String date, String category, String author) {
+        this(title, trailText, url, date, category, author, null);
+    }
+
+    public News(String title, String trailText, String url, String date, String category,
+                String author, String thumbnail) {
         mTitle = title;
-        mTrailText = trailText;
-        mUrl = url;
-        mDate = date;
-        mCategory = category;
-        mAuthor = author;
+        mThumbnail = thumbnail == null || thumbnail.isEmpty() ? null : thumbnail;
+        mTrailText = trailText == null || trailText.isEmpty() ? EMPTY : trailText.getBytes(UTF_8);
+
+        // Url prefix (section/year/month/day) is shared by many articles
+        int slash = url.lastIndexOf('/');
+        mUrlPrefix = POOL.get(url.substring(0, slash + 1));
+        mUrlSlug = url.substring(slash + 1);
+
+        long publishedAt = parseDate(date);
+        mPublishedAt = publishedAt;
+        mRawDate = publishedAt == NO_DATE && date != null && !date.isEmpty() ? date : null;
+
+        mCategory = POOL.get(category);
+        mAuthor = POOL.get(author);
+        mId = urlId(url);
     }
 
     public String getmTitle() {
@@ -18,11 +62,22 @@ public class News {
     }
 
     public String getmUrl() {
-        return mUrl;
+        return mUrlPrefix + mUrlSlug;
     }
 
+    /**
+     * @return ISO 8601 publication date as it comes from API, empty if unknown
+     */
     public String getmDate() {
-        return mDate;
+        if (mPublishedAt == NO_DATE) return mRawDate != null ? mRawDate : "";
+        return formatDate(mPublishedAt);
+    }
+
+    /**
+     * @return publication time in epoch millis, Long.MIN_VALUE if unknown
+     */
+    public long getPublishedAt() {
+        return mPublishedAt;
     }
 
     public String getmCategory() {
@@ -34,6 +89,175 @@ public class News {
     }
 
     public String getmTrailText() {
-        return mTrailText;
+        return mTrailText.length == 0 ? "" : new String(mTrailText, UTF_8);
+    }
+
+    public boolean hasTrailText() {
+        return mTrailText.length != 0;
+    }
+
+    /**
+     * @return thumbnail url or null
+     */
+    public String getThumbnail() {
+        return mThumbnail;
+    }
+
+    /**
+     * @return 64-bit hash of webUrl, stable id of the article
+     */
+    public long getId() {
+        return mId;
+    }
+
+    /**
+     * @return true if all shown values are equal
+     */
+    public boolean hasSameContent(News other) {
+        return mTitle.equals(other.mTitle)
+                && mPublishedAt == other.mPublishedAt
+                && mCategory.equals(other.mCategory)
+                && mAuthor.equals(other.mAuthor)
+                && Arrays.equals(mTrailText, other.mTrailText)
+                && (mThumbnail == null ? other.mThumbnail == null
+                : mThumbnail.equals(other.mThumbnail));
+    }
+
+    public NewsDisplay getDisplay() {
+        return mDisplay;
+    }
+
+    void setDisplay(NewsDisplay display) {
+        mDisplay = display;
+    }
+
+    /**
+     * 64-bit FNV-1a hash
+     */
+    static long urlId(String url) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            hash ^= url.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Parse API date yyyy-MM-dd'T'HH:mm:ss'Z' (UTC) without allocations
+     *
+     * @return epoch millis or NO_DATE
+     */
+    static long parseDate(String date) {
+        if (date == null || date.length() != 20 || date.charAt(4) != '-'
+                || date.charAt(7) != '-' || date.charAt(10) != 'T' || date.charAt(13) != ':'
+                || date.charAt(16) != ':' || date.charAt(19) != 'Z') {
+            return NO_DATE;
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 2);
+        int day = digits(date, 8, 2);
+        int hour = digits(date, 11, 2);
+        int minute = digits(date, 14, 2);
+        int second = digits(date, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return NO_DATE;
+        }
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY
+                + ((hour * 60L + minute) * 60L + second) * 1000L;
+    }
+
+    private static int digits(String s, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Format epoch millis back to API date yyyy-MM-dd'T'HH:mm:ss'Z'
+     */
+    static String formatDate(long epochMillis) {
+        return format(epochMillis, false);
+    }
+
+    /**
+     * Format epoch millis to row date dd/MM/yyyy HH:mm, in UTC like the API date
+     */
+    static String formatDisplayDate(long epochMillis) {
+        return format(epochMillis, true);
+    }
+
+    private static String format(long epochMillis, boolean display) {
+        long days = epochMillis / MILLIS_PER_DAY;
+        long millisOfDay = epochMillis % MILLIS_PER_DAY;
+        if (millisOfDay < 0) {
+            days--;
+            millisOfDay += MILLIS_PER_DAY;
+        }
+        long secondOfDay = millisOfDay / 1000;
+
+        // Civil date from days since epoch (proleptic Gregorian)
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+        int hour = (int) (secondOfDay / 3600);
+        int minute = (int) (secondOfDay / 60 % 60);
+
+        if (display) {
+            char[] out = new char[16];
+            put(out, 0, day, 2);
+            out[2] = '/';
+            put(out, 3, month, 2);
+            out[5] = '/';
+            put(out, 6, year, 4);
+            out[10] = ' ';
+            put(out, 11, hour, 2);
+            out[13] = ':';
+            put(out, 14, minute, 2);
+            return new String(out);
+        }
+
+        char[] out = new char[20];
+        put(out, 0, year, 4);
+        out[4] = '-';
+        put(out, 5, month, 2);
+        out[7] = '-';
+        put(out, 8, day, 2);
+        out[10] = 'T';
+        put(out, 11, hour, 2);
+        out[13] = ':';
+        put(out, 14, minute, 2);
+        out[16] = ':';
+        put(out, 17, (int) (secondOfDay % 60), 2);
+        out[19] = 'Z';
+        return new String(out);
+    }
+
+    private static void put(char[] out, int start, int value, int count) {
+        for (int i = start + count - 1; i >= start; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = (year >= 0 ? year : year - 399) / 400;
+        long yoe = year - era * 400;
+        long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
     }
 }
@@ -0,0 +1,92 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import java.util.List;
+
+/**
+ * Row display values of {@link News}, prepared in background when a page is loaded,
+ * so binding a row only assigns them. Trail text stays UTF-8 in News and is decoded
+ * when the row is bound, so it is not held twice.
+ */
+public class NewsDisplay {
+
+    private final String mDate;
+    private final int mCategoryColor;
+
+    NewsDisplay(String date, int categoryColor) {
+        mDate = date;
+        mCategoryColor = categoryColor;
+    }
+
+    public String getDate() {
+        return mDate;
+    }
+
+    public int getCategoryColor() {
+        return mCategoryColor;
+    }
+
+    /**
+     * Prepare display values of the news without one. Runs on background thread.
+     */
+    public static void prepare(Context context, List<News> news) {
+        if (news == null) return;
+        Resources res = context.getResources();
+        for (News current : news) {
+            if (current.getDisplay() == null) current.setDisplay(create(res, current));
+        }
+    }
+
+    static NewsDisplay create(Resources res, News news) {
+        return new NewsDisplay(formattedDate(news), categoryColor(res, news.getmCategory()));
+    }
+
+    /**
+     * @return publication date as dd/MM/yyyy HH:mm, empty if unknown
+     */
+    static String formattedDate(News news) {
+        long publishedAt = news.getPublishedAt();
+        // Not in the API format, parsed the slow way
+        if (publishedAt == Long.MIN_VALUE) return Utils.formattedDate(news.getmDate());
+        return News.formatDisplayDate(publishedAt);
+    }
+
+    /**
+     * Badge color for the section name
+     */
+    static int categoryColor(Resources res, String categoryName) {
+
+        int categoryColor;
+
+        switch (categoryName){
+            case "News":
+                categoryColor = res.getColor(R.color.news);
+                break;
+            case "Music":
+            case "Television & radio":
+            case "Life and style":
+                categoryColor = res.getColor(R.color.music);
+                break;
+            case "Science":
+            case "Technology":
+                categoryColor = res.getColor(R.color.science);
+                break;
+            case "Business":
+            case "World news":
+            case "Global development":
+                categoryColor = res.getColor(R.color.business);
+                break;
+            case "Sport":
+            case "Football":
+            case "Environment":
+                categoryColor = res.getColor(R.color.sport);
+                break;
+                default:
+                    categoryColor = res.getColor(R.color.default_color);
+        }
+
+        return categoryColor;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.android.newsapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared HTTP client for Guardian API requests.
+ * <p>
+ * Keeps connections alive between page loads: a connection is released by
+ * draining and closing its stream instead of {@link HttpURLConnection#disconnect()},
+ * so the socket (and its TLS session) goes back to the platform connection pool
+ * and the next page to the same host reuses it.
+ */
+public class NewsHttpClient {
+
+    private static final int READ_TIMEOUT = 10000; /* milliseconds */
+    private static final int CONNECT_TIMEOUT = 15000; /* milliseconds */
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final int DISPATCHER_THREADS = 3;
+    //Bigger leftovers are cheaper to drop with the socket than to read
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    private static NewsHttpClient sInstance;
+
+    private final ExecutorService mDispatcher;
+
+    private NewsHttpClient() {
+        // Pool settings of the platform HttpURLConnection
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(MAX_IDLE_CONNECTIONS));
+
+        ThreadPoolExecutor dispatcher = new ThreadPoolExecutor(
+                DISPATCHER_THREADS, DISPATCHER_THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "news-http-" + mCount.incrementAndGet());
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        dispatcher.allowCoreThreadTimeOut(true);
+        mDispatcher = dispatcher;
+    }
+
+    public static synchronized NewsHttpClient getInstance() {
+        if (sInstance == null) sInstance = new NewsHttpClient();
+        return sInstance;
+    }
+
+    /**
+     * Executor shared by all background network work of the app
+     */
+    public ExecutorService getDispatcher() {
+        return mDispatcher;
+    }
+
+    /**
+     * Open GET connection with shared timeouts and keep-alive
+     */
+    public HttpURLConnection open(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setRequestMethod("GET");
+        connection.setRequestProperty("Connection", "keep-alive");
+        return connection;
+    }
+
+    /**
+     * Release connection back to the pool
+     *
+     * @param connection - opened connection
+     * @param inputStream - response stream, may be null
+     * @param failed - if request failed socket is dropped instead of reused
+     */
+    public void release(HttpURLConnection connection, InputStream inputStream, boolean failed) {
+        if (connection == null) return;
+        if (failed) {
+            connection.disconnect();
+            return;
+        }
+
+        try {
+            InputStream in = inputStream != null ? inputStream : connection.getInputStream();
+            // Unread bytes keep the socket out of the pool
+            byte[] buffer = new byte[4096];
+            int drained = 0;
+            int read;
+            while (drained < MAX_DRAIN_BYTES && (read = in.read(buffer)) != -1) {
+                drained += read;
+            }
+            in.close();
+            if (drained >= MAX_DRAIN_BYTES) connection.disconnect();
+        } catch (IOException e) {
+            connection.disconnect();
+        }
+    }
+}
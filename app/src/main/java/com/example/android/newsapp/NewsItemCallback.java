@@ -0,0 +1,31 @@
+package com.example.android.newsapp;
+
+import android.support.v7.util.DiffUtil;
+
+/**
+ * Row identity of the news list.
+ * News are the same item if they have the same webUrl.
+ * Null is a placeholder of an evicted page, placeholders are the same item.
+ */
+class NewsItemCallback extends DiffUtil.ItemCallback<News> {
+
+    @Override
+    public boolean areItemsTheSame(News oldItem, News newItem) {
+        if (oldItem == null || newItem == null) return oldItem == newItem;
+        return oldItem.getId() == newItem.getId();
+    }
+
+    @Override
+    public boolean areContentsTheSame(News oldItem, News newItem) {
+        if (oldItem == null || newItem == null) return oldItem == newItem;
+        return oldItem.hasSameContent(newItem);
+    }
+
+    /**
+     * @return stable id of the row, the url hash of the news
+     */
+    static long itemId(News news, int position) {
+        // Placeholder ids are negative positions, unlikely to collide with url hashes
+        return news != null ? news.getId() : -1 - position;
+    }
+}
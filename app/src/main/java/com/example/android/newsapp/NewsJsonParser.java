@@ -0,0 +1,140 @@
+package com.example.android.newsapp;
+
+import android.text.Html;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser for Guardian API responses.
+ * <p>
+ * Reads response.results[] straight from the network stream and creates
+ * {@link News} objects one by one, without building the whole body String
+ * or a JSONObject tree first.
+ */
+public class NewsJsonParser {
+
+    private int mTotalPages;
+    private boolean mStatusOk;
+
+    /**
+     * Parse the response from the given stream
+     *
+     * @param inputStream - raw (already decoded) response stream
+     * @return parsed news, empty list if status is not "ok"
+     */
+    public List<News> parse(InputStream inputStream) throws IOException {
+        List<News> news = new ArrayList<>();
+        mTotalPages = 0;
+        mStatusOk = false;
+
+        if (inputStream == null) return news;
+
+        // Reader is not closed, the stream is owned by the caller
+        JsonReader reader = new JsonReader(
+                new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("response")) {
+                readResponse(reader, news);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        //Status may come after results, so check it only at the end
+        if (!mStatusOk) news.clear();
+
+        return news;
+    }
+
+    /**
+     * @return value of response.pages from the last parsed response
+     */
+    public int getTotalPages() {
+        return mTotalPages;
+    }
+
+    private void readResponse(JsonReader reader, List<News> news) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "status":
+                    mStatusOk = reader.nextString().equals("ok");
+                    break;
+                case "pages":
+                    mTotalPages = reader.nextInt();
+                    break;
+                case "results":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        news.add(readNews(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private News readNews(JsonReader reader) throws IOException {
+        String title = "";
+        String url = "";
+        String date = "";
+        String category = "";
+        String author = "";
+        String trailText = "";
+        String thumbnail = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "webTitle":
+                    title = Html.fromHtml(reader.nextString()).toString();
+                    break;
+                case "webUrl":
+                    url = reader.nextString();
+                    break;
+                case "webPublicationDate":
+                    date = reader.nextString();
+                    break;
+                case "sectionName":
+                    category = reader.nextString();
+                    break;
+                case "fields":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String name = reader.nextName();
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.skipValue();
+                        } else if (name.equals("byline")) {
+                            author = reader.nextString();
+                        } else if (name.equals("trailText")) {
+                            //Strip html tags
+                            trailText = Html.fromHtml(reader.nextString()).toString();
+                        } else if (name.equals("thumbnail")) {
+                            thumbnail = reader.nextString();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new News(title, trailText, url, date, category, author, thumbnail);
+    }
+}
@@ -1,28 +0,0 @@
-package com.example.android.newsapp;
-
-import android.content.AsyncTaskLoader;
-import android.content.Context;
-
-import java.util.List;
-
-public class NewsLoader extends AsyncTaskLoader<List<News>> {
-
-    private String mUrl;
-
-    NewsLoader(Context context, String url) {
-        super(context);
-        mUrl = url;
-    }
-
-    @Override
-    protected void onStartLoading() {
-        forceLoad();
-    }
-
-    @Override
-    public List<News> loadInBackground() {
-        if(mUrl == null) return null;
-        List<News> news = Utils.fetchNewsUrl(mUrl);
-        return news;
-    }
-}
@@ -0,0 +1,41 @@
+package com.example.android.newsapp;
+
+import java.util.List;
+
+/**
+ * One page of API results together with response.pages of its request
+ */
+public class NewsPage {
+
+    private final List<News> mNews;
+    private final int mTotalPages;
+    private final boolean mFromStore;
+
+    public NewsPage(List<News> news, int totalPages) {
+        this(news, totalPages, false);
+    }
+
+    /**
+     * @param fromStore - true if any of the news was read from {@link NewsStore}
+     */
+    public NewsPage(List<News> news, int totalPages, boolean fromStore) {
+        mNews = news;
+        mTotalPages = totalPages;
+        mFromStore = fromStore;
+    }
+
+    public List<News> getNews() {
+        return mNews;
+    }
+
+    public int getTotalPages() {
+        return mTotalPages;
+    }
+
+    /**
+     * @return true if the page was read from {@link NewsStore}, false if it was fetched
+     */
+    public boolean isFromStore() {
+        return mFromStore;
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded sliding window over loaded feed pages.
+ * <p>
+ * Only pages around the viewport keep their news in memory. Evicted pages
+ * remember their size and are shown as placeholder (null) rows, so the scroll
+ * position stays stable until they are reloaded. News prepended by a refresh are
+ * not part of any page and stay in memory.
+ */
+public class NewsPageWindow {
+
+    //A news gone from the feed is never found, stop reloading its page after that
+    private static final int MAX_INCOMPLETE_RELOADS = 3;
+
+    /**
+     * One loaded page of the list
+     */
+    private static class Slot {
+        final int mPage;
+        final int mSize;
+        final boolean mPinned;
+        //Ids of the rows, to find them again in the reloaded page
+        final long[] mIds;
+        List<News> mNews;
+        boolean mReloading;
+        //Rows the last reload didn't find, shown as placeholders
+        int mMissing;
+        //Reloads which left rows missing
+        int mIncompleteReloads;
+
+        Slot(int page, List<News> news, boolean pinned) {
+            mPage = page;
+            mSize = news.size();
+            mNews = news;
+            mPinned = pinned;
+            mIds = new long[mSize];
+            for (int i = 0; i < mSize; i++) mIds[i] = news.get(i).getId();
+        }
+    }
+
+    private final List<Slot> mSlots = new ArrayList<>();
+    private final int mKeepPages;
+    private int mItemCount;
+    private long mNewestPublishedAt = Long.MIN_VALUE;
+
+    /**
+     * @param keepPages - pages kept in memory on each side of the visible pages
+     */
+    public NewsPageWindow(int keepPages) {
+        mKeepPages = keepPages;
+    }
+
+    /**
+     * Append loaded page to the end of the list
+     */
+    public void addPage(int page, List<News> news) {
+        mSlots.add(new Slot(page, news, false));
+        mItemCount += news.size();
+        remember(news);
+    }
+
+    /**
+     * Put news of a delta refresh at the top of the list. The refresh asks for news
+     * since the day of the newest loaded one, so news older than it and news already
+     * in the list are dropped.
+     *
+     * @param news     - refreshed news, newest first
+     * @param pageSize - size of the refresh request
+     * @return prepended news, null if the full response didn't reach the loaded news,
+     * there may be more new news than it holds and the list has to be reloaded
+     */
+    public List<News> prependNewer(List<News> news, int pageSize) {
+        LongHashSet loaded = new LongHashSet();
+        for (Slot slot : mSlots) {
+            for (long id : slot.mIds) loaded.add(id);
+        }
+
+        List<News> newer = new ArrayList<>();
+        boolean reachedLoaded = false;
+        for (News current : news) {
+            boolean older = current.getPublishedAt() < mNewestPublishedAt;
+            if (older || loaded.contains(current.getId())) {
+                reachedLoaded = true;
+            } else if (loaded.add(current.getId())) {
+                newer.add(current);
+            }
+        }
+        if (!reachedLoaded && news.size() >= pageSize) return null;
+        if (!newer.isEmpty()) prependNews(newer);
+        return newer;
+    }
+
+    /**
+     * Put news newer than the loaded pages at the top of the list
+     */
+    private void prependNews(List<News> news) {
+        mSlots.add(0, new Slot(0, news, true));
+        mItemCount += news.size();
+        remember(news);
+    }
+
+    /**
+     * @return publication time of the newest news in the window, Long.MIN_VALUE if unknown
+     */
+    public long getNewestPublishedAt() {
+        return mNewestPublishedAt;
+    }
+
+    private void remember(List<News> news) {
+        for (News current : news) {
+            mNewestPublishedAt = Math.max(mNewestPublishedAt, current.getPublishedAt());
+        }
+    }
+
+    /**
+     * Put reloaded news back into an evicted page. Rows which are not in the reloaded
+     * news stay placeholders and their page is reloaded again when it is visible.
+     */
+    public void restorePage(int page, List<News> news) {
+        Map<Long, News> byId = new HashMap<>();
+        if (news != null) {
+            for (News current : news) byId.put(current.getId(), current);
+        }
+        // Rows of one request page may be split between slots after the feed shifted
+        for (Slot slot : mSlots) {
+            if (slot.mPinned) continue;
+            if (slot.mPage == page && slot.mReloading) {
+                slot.mReloading = false;
+                if (news == null) continue;
+                // Page content may shift on the server, put back the same news by id
+                // and keep row count stable
+                List<News> rows = new ArrayList<>(slot.mSize);
+                for (int i = 0; i < slot.mSize; i++) {
+                    News row = byId.get(slot.mIds[i]);
+                    // Rows found before stay when the page is reloaded for the missing ones
+                    if (row == null && slot.mNews != null) row = slot.mNews.get(i);
+                    rows.add(row);
+                }
+                slot.mNews = rows;
+                slot.mMissing = countMissing(rows);
+                if (slot.mMissing > 0) slot.mIncompleteReloads++;
+            } else if (slot.mNews != null && slot.mMissing > 0) {
+                // Missing rows may have moved to the neighbour page
+                for (int i = 0; i < slot.mSize; i++) {
+                    if (slot.mNews.get(i) != null) continue;
+                    News found = byId.get(slot.mIds[i]);
+                    if (found == null) continue;
+                    slot.mNews.set(i, found);
+                    slot.mMissing--;
+                }
+            }
+        }
+    }
+
+    private static int countMissing(List<News> rows) {
+        int missing = 0;
+        for (News row : rows) {
+            if (row == null) missing++;
+        }
+        return missing;
+    }
+
+    public void clear() {
+        mSlots.clear();
+        mItemCount = 0;
+        mNewestPublishedAt = Long.MIN_VALUE;
+    }
+
+    public boolean isEmpty() {
+        return mItemCount == 0;
+    }
+
+    public int size() {
+        return mItemCount;
+    }
+
+    /**
+     * Flattened rows for the adapter, null for rows of evicted pages
+     */
+    public List<News> snapshot() {
+        List<News> rows = new ArrayList<>(mItemCount);
+        for (Slot slot : mSlots) {
+            if (slot.mNews != null) {
+                rows.addAll(slot.mNews);
+            } else {
+                for (int i = 0; i < slot.mSize; i++) rows.add(null);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Evict pages far from the visible rows
+     *
+     * @param firstVisible - first visible adapter position
+     * @param lastVisible  - last visible adapter position
+     * @return pages near the viewport which were evicted and have to be reloaded
+     */
+    public List<Integer> onVisibleRange(int firstVisible, int lastVisible) {
+        List<Integer> reload = new ArrayList<>();
+        if (mSlots.isEmpty() || firstVisible < 0) return reload;
+
+        int firstSlot = slotIndexOf(firstVisible);
+        int lastSlot = slotIndexOf(lastVisible);
+
+        for (int i = 0; i < mSlots.size(); i++) {
+            Slot slot = mSlots.get(i);
+            if (slot.mPinned) continue;
+            boolean keep = i >= firstSlot - mKeepPages && i <= lastSlot + mKeepPages;
+            if (!keep) {
+                slot.mNews = null;
+                slot.mMissing = 0;
+            } else if (needsReload(slot) && !slot.mReloading) {
+                slot.mReloading = true;
+                if (!reload.contains(slot.mPage)) reload.add(slot.mPage);
+            }
+        }
+        return reload;
+    }
+
+    private static boolean needsReload(Slot slot) {
+        if (slot.mNews == null) return true;
+        return slot.mMissing > 0 && slot.mIncompleteReloads < MAX_INCOMPLETE_RELOADS;
+    }
+
+    private int slotIndexOf(int position) {
+        int start = 0;
+        for (int i = 0; i < mSlots.size(); i++) {
+            start += mSlots.get(i).mSize;
+            if (position < start) return i;
+        }
+        return mSlots.size() - 1;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.android.newsapp;
+
+import android.arch.lifecycle.Observer;
+import android.content.Context;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distance-based prefetch of the next pages during infinite scroll.
+ * <p>
+ * Watches visible positions of the {@link LinearLayoutManager} and, once the
+ * last visible row is within the prefetch distance of the end of the list,
+ * loads the next pages in background into a small ready-page buffer.
+ * Prefetch runs at the lowest {@link FeedRepository} priority.
+ */
+public class NewsPrefetcher extends RecyclerView.OnScrollListener {
+
+    /**
+     * Builds request url for a page
+     */
+    public interface UrlFactory {
+        String pageUrl(int page);
+    }
+
+    /**
+     * Main thread callback
+     */
+    public interface Listener {
+        /**
+         * Called when the end of the list is within the prefetch distance
+         */
+        void onNearEnd();
+
+        /**
+         * Called when prefetched page is put into the buffer
+         */
+        void onPageReady(int page);
+    }
+
+    private final Context mContext;
+    private final LinearLayoutManager mLayoutManager;
+    private final UrlFactory mUrlFactory;
+    private final Listener mListener;
+    private final int mDistance;
+    private int mDepth;
+
+    // Accessed on main thread only
+    private final Map<Integer, List<News>> mReadyPages = new HashMap<>();
+    private final Map<Integer, PageLoad> mInFlight = new HashMap<>();
+    private String mSection;
+    private int mLoadedPage, mTotalPages;
+
+    /**
+     * @param distance - number of rows before the end of the list to start prefetch
+     * @param depth    - number of pages to keep loaded ahead
+     */
+    public NewsPrefetcher(Context context, LinearLayoutManager layoutManager,
+                          UrlFactory urlFactory, Listener listener, int distance, int depth) {
+        mContext = context.getApplicationContext();
+        mLayoutManager = layoutManager;
+        mUrlFactory = urlFactory;
+        mListener = listener;
+        mDistance = distance;
+        mDepth = depth;
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        super.onScrolled(recyclerView, dx, dy);
+        if (dy <= 0) return;
+
+        int itemCount = mLayoutManager.getItemCount();
+        int lastVisible = mLayoutManager.findLastVisibleItemPosition();
+        if (itemCount == 0 || lastVisible == RecyclerView.NO_POSITION) return;
+
+        if (itemCount - 1 - lastVisible <= mDistance) {
+            mListener.onNearEnd();
+            prefetch();
+        }
+    }
+
+    /**
+     * Update pagination state after a page was shown
+     *
+     * @param section    - current section
+     * @param loadedPage - last page in the list
+     * @param totalPages - response.pages of the section
+     */
+    public void update(String section, int loadedPage, int totalPages) {
+        if (mSection != null && !mSection.equals(section)) reset();
+        mSection = section;
+        mLoadedPage = loadedPage;
+        mTotalPages = totalPages;
+
+        // Drop pages which are already in the list
+        for (Integer page : mReadyPages.keySet().toArray(new Integer[0])) {
+            if (page <= loadedPage) mReadyPages.remove(page);
+        }
+    }
+
+    /**
+     * @param depth - number of pages to keep loaded ahead
+     */
+    public void setDepth(int depth) {
+        mDepth = depth;
+    }
+
+    /**
+     * Take prefetched page from the buffer
+     *
+     * @return news of the page or null if it is not ready
+     */
+    public List<News> take(int page) {
+        return mReadyPages.remove(page);
+    }
+
+    /**
+     * Forget buffered and in-flight pages, e.g. on refresh. Also call it when the
+     * listener is destroyed, in-flight calls are observed forever.
+     */
+    public void reset() {
+        mReadyPages.clear();
+        // Removing the only observer cancels the call
+        for (PageLoad load : mInFlight.values()) load.mCall.removeObserver(load);
+        mInFlight.clear();
+    }
+
+    private void prefetch() {
+        if (mSection == null) return;
+        int lastPage = Math.min(mLoadedPage + mDepth, mTotalPages);
+        for (int page = mLoadedPage + 1; page <= lastPage; page++) {
+            if (!mReadyPages.containsKey(page) && !mInFlight.containsKey(page)) {
+                load(page);
+            }
+        }
+    }
+
+    private void load(int page) {
+        FeedCall<NewsPage> call = FeedRepository.getInstance(mContext).loadPage(
+                mUrlFactory.pageUrl(page), mSection, page, true, false,
+                FeedRepository.PRIORITY_PREFETCH);
+        PageLoad load = new PageLoad(page, call);
+        mInFlight.put(page, load);
+        call.observeForever(load);
+    }
+
+    /**
+     * Observer of one prefetched page, kept to be removed on reset
+     */
+    private class PageLoad implements Observer<NewsPage> {
+        private final int mPage;
+        private final FeedCall<NewsPage> mCall;
+
+        PageLoad(int page, FeedCall<NewsPage> call) {
+            mPage = page;
+            mCall = call;
+        }
+
+        @Override
+        public void onChanged(NewsPage result) {
+            mCall.removeObserver(this);
+            // Call was dropped by reset
+            if (mInFlight.get(mPage) != this) return;
+            mInFlight.remove(mPage);
+            List<News> news = result != null ? result.getNews() : null;
+            if (news != null && !news.isEmpty() && mPage > mLoadedPage) {
+                mReadyPages.put(mPage, news);
+                mListener.onPageReady(mPage);
+            }
+        }
+    }
+}
@@ -1,14 +1,14 @@
 package com.example.android.newsapp;
 
 import android.content.Context;
-import android.content.Intent;
-import android.content.res.Resources;
-import android.net.Uri;
+import android.graphics.Color;
 import android.support.annotation.NonNull;
+import android.support.v7.recyclerview.extensions.AsyncListDiffer;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
@@ -17,16 +17,34 @@ import java.util.List;
 public class NewsRecyclerAdapter extends RecyclerView.Adapter<NewsRecyclerAdapter.NewsHolder> {
 
     private Context mContext;
-    private List<News> mNews;
+    private final ThumbnailLoader mThumbnailLoader;
+    private final int mThumbnailWidth, mThumbnailHeight;
+    // Diff of submitted lists is computed in background and dispatched as range updates
+    private final AsyncListDiffer<News> mDiffer;
 
-    public NewsRecyclerAdapter(Context context, List<News> news) {
+    public NewsRecyclerAdapter(Context context) {
         mContext = context;
-        mNews = news;
+        mDiffer = new AsyncListDiffer<>(this, new NewsItemCallback());
+        mThumbnailLoader = ThumbnailLoader.getInstance(context);
+        mThumbnailWidth = context.getResources().getDimensionPixelSize(R.dimen.thumbnail_width);
+        mThumbnailHeight = context.getResources().getDimensionPixelSize(R.dimen.thumbnail_height);
+        setHasStableIds(true);
+    }
+
+    /**
+     * Show new list of news. Only changed rows are rebound.
+     *
+     * @param news - list snapshot, must not be modified after submit
+     */
+    public void submitList(List<News> news) {
+        mDiffer.submitList(news);
     }
 
     public class NewsHolder extends RecyclerView.ViewHolder {
         public TextView newsHeader, newsDate, newsCategory, newsAuthor, newsTrailText;
         public LinearLayout listItem;
+        public ImageView newsThumbnail;
+        ThumbnailLoader.Request thumbnailRequest;
 
         public NewsHolder(View view) {
             super(view);
@@ -37,6 +55,20 @@ public class NewsRecyclerAdapter extends RecyclerView.Adapter<NewsRecyclerAdapte
             newsDate = view.findViewById(R.id.news_date);
             newsCategory = view.findViewById(R.id.news_category);
             newsAuthor = view.findViewById(R.id.news_author);
+            newsThumbnail = view.findViewById(R.id.news_thumbnail);
+
+            // Handling on click, one listener per holder
+            view.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    int position = getAdapterPosition();
+                    if (position == RecyclerView.NO_POSITION) return;
+                    News news = mDiffer.getCurrentList().get(position);
+                    // Placeholder of evicted page
+                    if (news == null) return;
+                    mContext.startActivity(ReaderActivity.intent(mContext, news));
+                }
+            });
         }
     }
 
@@ -49,75 +81,77 @@ public class NewsRecyclerAdapter extends RecyclerView.Adapter<NewsRecyclerAdapte
     }
 
     @Override
-    public void onBindViewHolder(@NonNull final NewsHolder holder, int position) {
+    public void onBindViewHolder(@NonNull NewsHolder holder, int position) {
         //get current news
-        final News current = mNews.get(position);
+        News current = mDiffer.getCurrentList().get(position);
+        cancelThumbnail(holder);
+        if (current == null) {
+            bindPlaceholder(holder);
+            return;
+        }
+        NewsDisplay display = current.getDisplay();
+        // Not prepared in background, e.g. restored list
+        if (display == null) {
+            display = NewsDisplay.create(mContext.getResources(), current);
+            current.setDisplay(display);
+        }
 
         //construct holder
         holder.newsHeader.setText(current.getmTitle());
-        holder.newsDate.setText(Utils.formattedDate(current.getmDate()));
+        holder.newsDate.setText(display.getDate());
         holder.newsCategory.setText(current.getmCategory());
         holder.newsAuthor.setText(current.getmAuthor());
 
-        if(!current.getmTrailText().equals("")) {
+        if(current.hasTrailText()) {
             holder.newsTrailText.setText(current.getmTrailText());
             holder.newsTrailText.setVisibility(View.VISIBLE);
         } else {
             holder.newsTrailText.setVisibility(View.GONE);
         }
 
-        holder.newsCategory.setBackgroundColor(setCategoryColor(current.getmCategory()));
-
-        // Handling on click
-        holder.itemView.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                String newsUrl = current.getmUrl();
-                Intent newsIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(newsUrl));
-                mContext.startActivity(newsIntent);
-            }
-        });
+        holder.newsCategory.setBackgroundColor(display.getCategoryColor());
+
+        if (current.getThumbnail() != null) {
+            holder.newsThumbnail.setVisibility(View.VISIBLE);
+            holder.thumbnailRequest = mThumbnailLoader.load(current.getThumbnail(),
+                    holder.newsThumbnail, mThumbnailWidth, mThumbnailHeight);
+        } else {
+            holder.newsThumbnail.setVisibility(View.GONE);
+        }
     }
 
     @Override
-    public int getItemCount() {
-        return mNews.size();
+    public void onViewRecycled(@NonNull NewsHolder holder) {
+        super.onViewRecycled(holder);
+        // Stop loading the image of a row which left the screen
+        cancelThumbnail(holder);
     }
 
-    private int setCategoryColor(String categoryName){
-
-        int categoryColor;
-        Resources res = mContext.getResources();
-
-        switch (categoryName){
-            case "News":
-                categoryColor = res.getColor(R.color.news);
-                break;
-            case "Music":
-            case "Television & radio":
-            case "Life and style":
-                categoryColor = res.getColor(R.color.music);
-                break;
-            case "Science":
-            case "Technology":
-                categoryColor = res.getColor(R.color.science);
-                break;
-            case "Business":
-            case "World news":
-            case "Global development":
-                categoryColor = res.getColor(R.color.business);
-                break;
-            case "Sport":
-            case "Football":
-            case "Environment":
-                categoryColor = res.getColor(R.color.sport);
-                break;
-                default:
-                    categoryColor = res.getColor(R.color.default_color);
-        }
+    private void cancelThumbnail(NewsHolder holder) {
+        mThumbnailLoader.cancel(holder.thumbnailRequest);
+        holder.thumbnailRequest = null;
+    }
 
-        return categoryColor;
+    /**
+     * Empty row in place of a news of evicted page, until the page is reloaded
+     */
+    private void bindPlaceholder(NewsHolder holder) {
+        holder.newsHeader.setText("");
+        holder.newsDate.setText("");
+        holder.newsCategory.setText("");
+        holder.newsAuthor.setText("");
+        holder.newsTrailText.setVisibility(View.GONE);
+        holder.newsThumbnail.setVisibility(View.GONE);
+        holder.newsCategory.setBackgroundColor(Color.TRANSPARENT);
     }
 
+    @Override
+    public int getItemCount() {
+        return mDiffer.getCurrentList().size();
+    }
 
+    @Override
+    public long getItemId(int position) {
+        return NewsItemCallback.itemId(mDiffer.getCurrentList().get(position), position);
+    }
 }
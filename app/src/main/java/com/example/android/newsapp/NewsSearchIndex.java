@@ -0,0 +1,283 @@
+package com.example.android.newsapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline full-text index of fetched articles.
+ * <p>
+ * Title, trail text, byline and section are indexed in an SQLite FTS4 table
+ * with prefix indexes, keyed by {@link News#getId()}. The index grows as pages
+ * are fetched, independently of page eviction in {@link NewsStore}, and keeps the
+ * most recent articles up to its size limit. Results are ranked by recency.
+ */
+public class NewsSearchIndex extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "news_search.db";
+    private static final int DATABASE_VERSION = 2;
+
+    private static final String TABLE_INDEX = "search_index";
+    private static final String TABLE_ARTICLES = "search_articles";
+
+    private static final String COLUMN_ID = "docid";
+    private static final String COLUMN_TITLE = "title";
+    private static final String COLUMN_TRAIL_TEXT = "trail_text";
+    private static final String COLUMN_AUTHOR = "author";
+    private static final String COLUMN_CATEGORY = "category";
+    private static final String COLUMN_URL = "url";
+    private static final String COLUMN_DATE = "date";
+    private static final String COLUMN_THUMBNAIL = "thumbnail";
+    private static final String COLUMN_PUBLISHED_AT = "published_at";
+
+    private static final String ID_SELECTION = COLUMN_ID + "=?";
+
+    private static final int MAX_ARTICLES = 20000;
+
+    private static final String LOG_TAG = NewsSearchIndex.class.getName();
+
+    // Pages are indexed after they are delivered, one write transaction at a time
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "news-search-index");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private static NewsSearchIndex sInstance;
+
+    private NewsSearchIndex(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    public static synchronized NewsSearchIndex getInstance(Context context) {
+        if (sInstance == null) sInstance = new NewsSearchIndex(context);
+        return sInstance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        // Prefix indexes make "term*" queries of 2 and 3 characters cheap,
+        // longer prefixes are still a range scan of the term index
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_INDEX + " USING fts4("
+                + COLUMN_TITLE + ", "
+                + COLUMN_TRAIL_TEXT + ", "
+                + COLUMN_AUTHOR + ", "
+                + COLUMN_CATEGORY + ", "
+                + "prefix=\"2,3\")");
+        db.execSQL("CREATE TABLE " + TABLE_ARTICLES + " ("
+                + COLUMN_ID + " INTEGER PRIMARY KEY, "
+                + COLUMN_URL + " TEXT, "
+                + COLUMN_DATE + " TEXT, "
+                + COLUMN_THUMBNAIL + " TEXT, "
+                + COLUMN_PUBLISHED_AT + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX search_articles_published ON " + TABLE_ARTICLES
+                + " (" + COLUMN_PUBLISHED_AT + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_INDEX);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ARTICLES);
+        onCreate(db);
+    }
+
+    /**
+     * Add or update news in the index on its own low priority thread,
+     * so fetches don't wait for the write
+     */
+    public void indexLater(List<News> news) {
+        if (news == null || news.isEmpty()) return;
+        // Callers keep the list, e.g. to show it
+        final List<News> copy = new ArrayList<>(news);
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    index(copy);
+                } catch (SQLiteException e) {
+                    Log.e(LOG_TAG, "Problem indexing news", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Wait until news posted by {@link #indexLater(List)} so far are indexed
+     */
+    static void awaitIndexed() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        done.await();
+    }
+
+    /**
+     * Add or update news in the index. Runs on background thread.
+     */
+    public void index(List<News> news) {
+        if (news == null || news.isEmpty()) return;
+        SQLiteDatabase db = getWritableDatabase();
+
+        db.beginTransaction();
+        try {
+            ContentValues document = new ContentValues();
+            ContentValues article = new ContentValues();
+            for (News current : news) {
+                if (current == null) continue;
+                String[] args = {String.valueOf(current.getId())};
+                // FTS tables have no upsert, replace the document
+                db.delete(TABLE_INDEX, ID_SELECTION, args);
+
+                document.clear();
+                document.put(COLUMN_ID, current.getId());
+                document.put(COLUMN_TITLE, current.getmTitle());
+                document.put(COLUMN_TRAIL_TEXT, current.getmTrailText());
+                document.put(COLUMN_AUTHOR, current.getmAuthor());
+                document.put(COLUMN_CATEGORY, current.getmCategory());
+                db.insert(TABLE_INDEX, null, document);
+
+                article.clear();
+                article.put(COLUMN_ID, current.getId());
+                article.put(COLUMN_URL, current.getmUrl());
+                article.put(COLUMN_DATE, current.getmDate());
+                article.put(COLUMN_THUMBNAIL, current.getThumbnail());
+                article.put(COLUMN_PUBLISHED_AT, current.getPublishedAt());
+                db.insertWithOnConflict(TABLE_ARTICLES, null, article,
+                        SQLiteDatabase.CONFLICT_REPLACE);
+            }
+
+            evict(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Search indexed news. Runs on background thread.
+     * <p>
+     * Words are matched as prefixes, text in double quotes as a phrase,
+     * all of them have to match.
+     *
+     * @param query - user query
+     * @param limit - max number of results
+     * @return matching news, newest first
+     */
+    public List<News> search(String query, int limit) {
+        List<News> news = new ArrayList<>();
+        String match = matchExpression(query);
+        if (match.isEmpty()) return news;
+
+        Cursor cursor = getReadableDatabase().rawQuery("SELECT "
+                + "i." + COLUMN_TITLE + ", i." + COLUMN_TRAIL_TEXT + ", a." + COLUMN_URL + ", "
+                + "a." + COLUMN_DATE + ", i." + COLUMN_CATEGORY + ", i." + COLUMN_AUTHOR + ", "
+                + "a." + COLUMN_THUMBNAIL
+                + " FROM " + TABLE_INDEX + " i JOIN " + TABLE_ARTICLES + " a"
+                + " ON a." + COLUMN_ID + " = i." + COLUMN_ID
+                + " WHERE " + TABLE_INDEX + " MATCH ?"
+                + " ORDER BY a." + COLUMN_PUBLISHED_AT + " DESC"
+                + " LIMIT " + limit, new String[]{match});
+        try {
+            while (cursor.moveToNext()) {
+                news.add(new News(
+                        cursor.getString(0),
+                        cursor.getString(1),
+                        cursor.getString(2),
+                        cursor.getString(3),
+                        cursor.getString(4),
+                        cursor.getString(5),
+                        cursor.getString(6)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return news;
+    }
+
+    /**
+     * Build FTS MATCH expression from user query.
+     * Only letters and digits are kept, so user input can't break the query syntax.
+     */
+    static String matchExpression(String query) {
+        StringBuilder match = new StringBuilder();
+        if (query == null) return "";
+
+        String[] parts = query.toLowerCase(Locale.US).split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            // Odd parts are inside quotes, unclosed quote is a phrase till the end
+            boolean phrase = i % 2 == 1;
+            List<String> words = words(parts[i]);
+            if (words.isEmpty()) continue;
+
+            if (phrase) {
+                if (match.length() > 0) match.append(' ');
+                match.append('"');
+                for (int w = 0; w < words.size(); w++) {
+                    if (w > 0) match.append(' ');
+                    match.append(words.get(w));
+                }
+                match.append('"');
+            } else {
+                for (String word : words) {
+                    if (match.length() > 0) match.append(' ');
+                    match.append(word).append('*');
+                }
+            }
+        }
+        return match.toString();
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Drop the oldest articles above the size limit
+     */
+    private void evict(SQLiteDatabase db) {
+        long count = DatabaseUtils.queryNumEntries(db, TABLE_ARTICLES);
+        if (count <= MAX_ARTICLES) return;
+
+        String oldest = "SELECT " + COLUMN_ID + " FROM " + TABLE_ARTICLES
+                + " ORDER BY " + COLUMN_PUBLISHED_AT + " LIMIT " + (count - MAX_ARTICLES);
+        db.execSQL("DELETE FROM " + TABLE_INDEX + " WHERE " + COLUMN_ID + " IN (" + oldest + ")");
+        db.execSQL("DELETE FROM " + TABLE_ARTICLES + " WHERE " + COLUMN_ID + " IN (" + oldest + ")");
+    }
+}
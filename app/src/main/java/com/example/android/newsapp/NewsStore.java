@@ -0,0 +1,276 @@
+package com.example.android.newsapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disk-backed article store. Pages of {@link News} are kept in SQLite keyed by
+ * section + page number, so they survive a process restart and can be shown
+ * while offline.
+ */
+public class NewsStore extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "news_store.db";
+    private static final int DATABASE_VERSION = 2;
+
+    private static final String TABLE_PAGES = "pages";
+    private static final String TABLE_ARTICLES = "articles";
+
+    private static final String COLUMN_SECTION = "section";
+    private static final String COLUMN_PAGE = "page";
+    private static final String COLUMN_TOTAL_PAGES = "total_pages";
+    private static final String COLUMN_FETCHED_AT = "fetched_at";
+    private static final String COLUMN_POSITION = "position";
+    private static final String COLUMN_TITLE = "title";
+    private static final String COLUMN_TRAIL_TEXT = "trail_text";
+    private static final String COLUMN_URL = "url";
+    private static final String COLUMN_DATE = "date";
+    private static final String COLUMN_CATEGORY = "category";
+    private static final String COLUMN_AUTHOR = "author";
+    private static final String COLUMN_THUMBNAIL = "thumbnail";
+
+    private static final String PAGE_SELECTION = COLUMN_SECTION + "=? AND " + COLUMN_PAGE + "=?";
+
+    private static final long DEFAULT_TTL = TimeUnit.MINUTES.toMillis(10);
+    private static final int DEFAULT_MAX_ARTICLES = 2000;
+
+    private static NewsStore sInstance;
+
+    private final long mTtl;
+    private final int mMaxArticles;
+    private final Clock mClock;
+
+    /**
+     * Cached page with its metadata
+     */
+    public static class CachedPage extends NewsPage {
+        private final long mFetchedAt;
+        private final boolean mStale;
+
+        CachedPage(List<News> news, int totalPages, long fetchedAt, boolean stale) {
+            super(news, totalPages, true);
+            mFetchedAt = fetchedAt;
+            mStale = stale;
+        }
+
+        public long getFetchedAt() {
+            return mFetchedAt;
+        }
+
+        /**
+         * @return true if the page was past its TTL when it was read
+         */
+        public boolean isStale() {
+            return mStale;
+        }
+    }
+
+    /**
+     * @param name        - database file, null for an in-memory store
+     * @param ttlMillis   - time after which a cached page is revalidated from the network
+     * @param maxArticles - upper bound of stored articles, older pages are evicted above it
+     * @param clock       - time of fetched pages and of the staleness check
+     */
+    NewsStore(Context context, String name, long ttlMillis, int maxArticles,
+              Clock clock) {
+        super(context.getApplicationContext(), name, null, DATABASE_VERSION);
+        mTtl = ttlMillis;
+        mMaxArticles = maxArticles;
+        mClock = clock;
+    }
+
+    public static synchronized NewsStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NewsStore(context, DATABASE_NAME, DEFAULT_TTL, DEFAULT_MAX_ARTICLES,
+                    Clock.SYSTEM);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Replace the shared store, e.g. with an in-memory one in tests
+     */
+    static synchronized void setInstance(NewsStore store) {
+        sInstance = store;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_PAGES + " ("
+                + COLUMN_SECTION + " TEXT NOT NULL, "
+                + COLUMN_PAGE + " INTEGER NOT NULL, "
+                + COLUMN_TOTAL_PAGES + " INTEGER NOT NULL, "
+                + COLUMN_FETCHED_AT + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_SECTION + ", " + COLUMN_PAGE + "))");
+        db.execSQL("CREATE TABLE " + TABLE_ARTICLES + " ("
+                + COLUMN_SECTION + " TEXT NOT NULL, "
+                + COLUMN_PAGE + " INTEGER NOT NULL, "
+                + COLUMN_POSITION + " INTEGER NOT NULL, "
+                + COLUMN_TITLE + " TEXT, "
+                + COLUMN_TRAIL_TEXT + " TEXT, "
+                + COLUMN_URL + " TEXT, "
+                + COLUMN_DATE + " TEXT, "
+                + COLUMN_CATEGORY + " TEXT, "
+                + COLUMN_AUTHOR + " TEXT, "
+                + COLUMN_THUMBNAIL + " TEXT)");
+        db.execSQL("CREATE INDEX articles_page ON " + TABLE_ARTICLES
+                + " (" + COLUMN_SECTION + ", " + COLUMN_PAGE + ", " + COLUMN_POSITION + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ARTICLES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_PAGES);
+        onCreate(db);
+    }
+
+    public boolean isStale(CachedPage page) {
+        return isStale(page.getFetchedAt());
+    }
+
+    private boolean isStale(long fetchedAt) {
+        return mClock.currentTimeMillis() - fetchedAt > mTtl;
+    }
+
+    /**
+     * Read cached page
+     *
+     * @return cached page or null if the page is not stored
+     */
+    public CachedPage getPage(String section, int page) {
+        SQLiteDatabase db = getReadableDatabase();
+        String[] args = {section, String.valueOf(page)};
+
+        int totalPages;
+        long fetchedAt;
+        Cursor pageCursor = db.query(TABLE_PAGES,
+                new String[]{COLUMN_TOTAL_PAGES, COLUMN_FETCHED_AT},
+                PAGE_SELECTION, args, null, null, null);
+        try {
+            if (!pageCursor.moveToFirst()) return null;
+            totalPages = pageCursor.getInt(0);
+            fetchedAt = pageCursor.getLong(1);
+        } finally {
+            pageCursor.close();
+        }
+
+        List<News> news = new ArrayList<>();
+        Cursor cursor = db.query(TABLE_ARTICLES,
+                new String[]{COLUMN_TITLE, COLUMN_TRAIL_TEXT, COLUMN_URL,
+                        COLUMN_DATE, COLUMN_CATEGORY, COLUMN_AUTHOR, COLUMN_THUMBNAIL},
+                PAGE_SELECTION, args, null, null, COLUMN_POSITION);
+        try {
+            while (cursor.moveToNext()) {
+                news.add(new News(
+                        cursor.getString(0),
+                        cursor.getString(1),
+                        cursor.getString(2),
+                        cursor.getString(3),
+                        cursor.getString(4),
+                        cursor.getString(5),
+                        cursor.getString(6)));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return new CachedPage(news, totalPages, fetchedAt, isStale(fetchedAt));
+    }
+
+    /**
+     * Replace stored page and evict the oldest pages if the store is over its size limit
+     */
+    public void putPage(String section, int page, int totalPages, List<News> news) {
+        SQLiteDatabase db = getWritableDatabase();
+        String[] args = {section, String.valueOf(page)};
+
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_ARTICLES, PAGE_SELECTION, args);
+
+            ContentValues pageValues = new ContentValues();
+            pageValues.put(COLUMN_SECTION, section);
+            pageValues.put(COLUMN_PAGE, page);
+            pageValues.put(COLUMN_TOTAL_PAGES, totalPages);
+            pageValues.put(COLUMN_FETCHED_AT, mClock.currentTimeMillis());
+            db.insertWithOnConflict(TABLE_PAGES, null, pageValues,
+                    SQLiteDatabase.CONFLICT_REPLACE);
+
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < news.size(); i++) {
+                News current = news.get(i);
+                values.clear();
+                values.put(COLUMN_SECTION, section);
+                values.put(COLUMN_PAGE, page);
+                values.put(COLUMN_POSITION, i);
+                values.put(COLUMN_TITLE, current.getmTitle());
+                values.put(COLUMN_TRAIL_TEXT, current.getmTrailText());
+                values.put(COLUMN_URL, current.getmUrl());
+                values.put(COLUMN_DATE, current.getmDate());
+                values.put(COLUMN_CATEGORY, current.getmCategory());
+                values.put(COLUMN_AUTHOR, current.getmAuthor());
+                values.put(COLUMN_THUMBNAIL, current.getThumbnail());
+                db.insert(TABLE_ARTICLES, null, values);
+            }
+
+            evict(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Put news of a delta refresh on top of the stored first page. The page keeps its
+     * size, its oldest news move to the next page. Nothing is stored without a stored
+     * first page, its size and the page count come from a full fetch.
+     *
+     * @param news - news since the day of the newest stored one, newest first
+     */
+    public void putNewerNews(String section, List<News> news) {
+        CachedPage first = getPage(section, 1);
+        if (first == null) return;
+
+        // Refreshed news are the newest of their day, stored news missing from them
+        // are older, so the merged page stays newest first
+        List<News> merged = new ArrayList<>(news.size() + first.getNews().size());
+        LongHashSet ids = new LongHashSet();
+        for (News current : news) {
+            if (ids.add(current.getId())) merged.add(current);
+        }
+        for (News current : first.getNews()) {
+            if (ids.add(current.getId())) merged.add(current);
+        }
+        int size = Math.min(first.getNews().size(), merged.size());
+        putPage(section, 1, first.getTotalPages(), merged.subList(0, size));
+    }
+
+    /**
+     * Drop least recently fetched pages until stored articles fit into max size
+     */
+    private void evict(SQLiteDatabase db) {
+        long count = DatabaseUtils.queryNumEntries(db, TABLE_ARTICLES);
+        if (count <= mMaxArticles) return;
+
+        Cursor cursor = db.query(TABLE_PAGES,
+                new String[]{COLUMN_SECTION, COLUMN_PAGE},
+                null, null, null, null, COLUMN_FETCHED_AT);
+        try {
+            while (count > mMaxArticles && cursor.moveToNext()) {
+                String[] args = {cursor.getString(0), String.valueOf(cursor.getInt(1))};
+                count -= db.delete(TABLE_ARTICLES, PAGE_SELECTION, args);
+                db.delete(TABLE_PAGES, PAGE_SELECTION, args);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+}
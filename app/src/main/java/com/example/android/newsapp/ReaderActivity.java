@@ -0,0 +1,135 @@
+package com.example.android.newsapp;
+
+import android.arch.lifecycle.Observer;
+import android.content.Context;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.text.TextUtils;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.TextView;
+
+/**
+ * In-app reader of an article. Saved body is shown right away and offline,
+ * otherwise it is fetched, and the browser is opened if the API has no body text.
+ * A failed fetch can be retried by tapping the message.
+ */
+public class ReaderActivity extends AppCompatActivity {
+
+    private static final String EXTRA_URL = "url";
+    private static final String EXTRA_TITLE = "title";
+    private static final String EXTRA_AUTHOR = "author";
+    private static final String EXTRA_DATE = "date";
+
+    private String mUrl;
+    private TextView mBodyTextView;
+
+    /**
+     * @return intent which opens the news in the reader
+     */
+    static Intent intent(Context context, News news) {
+        Intent intent = new Intent(context, ReaderActivity.class);
+        intent.putExtra(EXTRA_URL, news.getmUrl());
+        intent.putExtra(EXTRA_TITLE, news.getmTitle());
+        intent.putExtra(EXTRA_AUTHOR, news.getmAuthor());
+        intent.putExtra(EXTRA_DATE, news.getmDate());
+        return intent;
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_reader);
+        if (getSupportActionBar() != null) getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+
+        Intent intent = getIntent();
+        mUrl = intent.getStringExtra(EXTRA_URL);
+
+        TextView titleTextView = (TextView) findViewById(R.id.reader_title);
+        titleTextView.setText(intent.getStringExtra(EXTRA_TITLE));
+
+        //Byline and date in one line
+        String author = intent.getStringExtra(EXTRA_AUTHOR);
+        String date = Utils.formattedDate(intent.getStringExtra(EXTRA_DATE));
+        TextView metaTextView = (TextView) findViewById(R.id.reader_meta);
+        metaTextView.setText(TextUtils.isEmpty(author) ? date : author + " · " + date);
+
+        mBodyTextView = (TextView) findViewById(R.id.reader_body);
+        loadArticle();
+    }
+
+    private void loadArticle() {
+        mBodyTextView.setText(R.string.reader_loading);
+        mBodyTextView.setOnClickListener(null);
+        mBodyTextView.setClickable(false);
+
+        final boolean online = isConnected();
+        FeedRepository.getInstance(this).loadArticle(mUrl, online).observe(this,
+                new Observer<String>() {
+                    @Override
+                    public void onChanged(String body) {
+                        if (body == null) {
+                            showFailure(online);
+                        } else if (body.isEmpty()) {
+                            // Article has no body text, e.g. a gallery or a video
+                            openInBrowser();
+                            finish();
+                        } else {
+                            mBodyTextView.setText(body);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Show why the body is missing, tap loads it again
+     *
+     * @param online - if true the fetch failed, otherwise the article is not saved
+     */
+    private void showFailure(boolean online) {
+        mBodyTextView.setText(online ? R.string.reader_failed : R.string.reader_not_saved);
+        mBodyTextView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                loadArticle();
+            }
+        });
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.reader, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+        if (id == R.id.action_open_browser) {
+            openInBrowser();
+            return true;
+        } else if (id == android.R.id.home) {
+            // Back to the list the reader was opened from, main feed or search
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void openInBrowser() {
+        startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse(mUrl)));
+    }
+
+    private boolean isConnected() {
+        ConnectivityManager connectivityManager = (ConnectivityManager)
+                getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) return false;
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+}
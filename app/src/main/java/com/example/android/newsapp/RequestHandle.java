@@ -0,0 +1,97 @@
+package com.example.android.newsapp;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cancellation of a network request.
+ * <p>
+ * The connection of the running request is attached to the handle, cancelling
+ * disconnects it, which unblocks a read on another thread. Cancelling a handle
+ * cancels its children too, e.g. retries and hedged copies of a request.
+ */
+public class RequestHandle {
+
+    private final List<RequestHandle> mChildren = new ArrayList<>();
+    private HttpURLConnection mConnection;
+    private boolean mCancelled;
+
+    /**
+     * @return new handle cancelled together with this one
+     */
+    public RequestHandle child() {
+        return adopt(new RequestHandle());
+    }
+
+    /**
+     * Cancel the given handle together with this one, right away if this one is cancelled
+     *
+     * @return the given handle
+     */
+    <H extends RequestHandle> H adopt(H child) {
+        synchronized (this) {
+            if (!mCancelled) {
+                mChildren.add(child);
+                return child;
+            }
+        }
+        child.cancel();
+        return child;
+    }
+
+    public void cancel() {
+        HttpURLConnection connection;
+        List<RequestHandle> children;
+        synchronized (this) {
+            if (mCancelled) return;
+            mCancelled = true;
+            notifyAll();
+            connection = mConnection;
+            mConnection = null;
+            children = new ArrayList<>(mChildren);
+            mChildren.clear();
+        }
+        if (connection != null) connection.disconnect();
+        for (RequestHandle child : children) child.cancel();
+    }
+
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Wait for the given time unless the handle is cancelled meanwhile
+     *
+     * @return true if the handle is cancelled
+     */
+    synchronized boolean await(long millis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + millis;
+        long remaining = millis;
+        while (!mCancelled && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return mCancelled;
+    }
+
+    /**
+     * Register connection of the running request
+     *
+     * @return false if the handle is already cancelled, the connection is closed then
+     */
+    boolean attach(HttpURLConnection connection) {
+        synchronized (this) {
+            if (!mCancelled) {
+                mConnection = connection;
+                return true;
+            }
+        }
+        connection.disconnect();
+        return false;
+    }
+
+    synchronized void detach(HttpURLConnection connection) {
+        if (mConnection == connection) mConnection = null;
+    }
+}
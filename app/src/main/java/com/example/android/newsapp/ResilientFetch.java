@@ -0,0 +1,232 @@
+package com.example.android.newsapp;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resilience layer of feed page requests.
+ * <p>
+ * Page GETs are idempotent: a failed request is retried with jittered exponential
+ * backoff, and a request slower than the p95 latency of its section gets a hedged
+ * copy, the first response wins and the other request is cancelled. Retries and
+ * hedges draw from a shared budget, so a broken network doesn't multiply the load.
+ */
+class ResilientFetch {
+
+    private static final String LOG_TAG = ResilientFetch.class.getName();
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF = 250; /* milliseconds */
+    private static final long MAX_BACKOFF = 4000; /* milliseconds */
+    //Hedge delay before the section has enough latency samples
+    private static final long DEFAULT_HEDGE_DELAY = 2000; /* milliseconds */
+    private static final long MIN_HEDGE_DELAY = 200; /* milliseconds */
+    private static final long MAX_HEDGE_DELAY = 10000; /* milliseconds */
+    private static final long HEDGE_MIN_SAMPLES = 20;
+    private static final int MAX_ATTEMPT_THREADS = 8;
+
+    private static final RetryBudget BUDGET = new RetryBudget();
+
+    // Own pool, callers may run on the shared dispatcher and wait for the attempts.
+    // When it is full the attempt runs on the caller thread and hedges are skipped.
+    // Attempts run at the priority of the thread that started them, so a prefetch
+    // doesn't compete with a visible page.
+    private static final ThreadPoolExecutor ATTEMPTS = new ThreadPoolExecutor(
+            0, MAX_ATTEMPT_THREADS, 30, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(), new ThreadFactory() {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "news-fetch-" + mCount.incrementAndGet());
+        }
+    });
+
+    /**
+     * Token bucket in tenths of a retry: every request deposits one tenth,
+     * so at most about 10% of requests are retried or hedged over time
+     */
+    private static class RetryBudget {
+        private static final int MAX_BALANCE = 100;
+        private static final int DEPOSIT = 1;
+        private static final int COST = 10;
+
+        private int mBalance = MAX_BALANCE;
+
+        synchronized void deposit() {
+            mBalance = Math.min(MAX_BALANCE, mBalance + DEPOSIT);
+        }
+
+        synchronized boolean withdraw() {
+            if (mBalance < COST) return false;
+            mBalance -= COST;
+            return true;
+        }
+
+        /**
+         * Give back a withdrawal which was not spent
+         */
+        synchronized void refund() {
+            mBalance = Math.min(MAX_BALANCE, mBalance + COST);
+        }
+    }
+
+    private ResilientFetch() {
+    }
+
+    /**
+     * Fetch page with retries and hedging. Runs on background thread.
+     *
+     * @param httpCache - validator cache of the first request, may be null
+     * @param handle    - cancels all requests of the fetch
+     * @return page or null if every attempt failed
+     */
+    static NewsPage fetch(URL url, HttpCache httpCache, RequestHandle handle) {
+        BUDGET.deposit();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return hedged(url, httpCache, handle);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (IOException e) {
+                if (handle.isCancelled()) return null;
+                Log.e(LOG_TAG, "Problem retrieving the JSON results.", e);
+                if (!isRetriable(e) || attempt + 1 >= MAX_ATTEMPTS) return null;
+                if (!BUDGET.withdraw()) {
+                    FeedMetrics.getInstance().recordBudgetExhausted();
+                    return null;
+                }
+                FeedMetrics.getInstance().recordRetry();
+                try {
+                    // Cancelled fetch doesn't wait out its backoff
+                    if (handle.await(backoff(attempt))) return null;
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * One attempt, hedged by a copy if it is slower than the p95 latency
+     */
+    private static NewsPage hedged(URL url, HttpCache httpCache, RequestHandle parent)
+            throws IOException, InterruptedException {
+        CompletionService<NewsPage> completion = new ExecutorCompletionService<>(ATTEMPTS);
+        List<RequestHandle> handles = new ArrayList<>();
+
+        RequestHandle primary = parent.child();
+        handles.add(primary);
+        try {
+            completion.submit(request(url, httpCache, primary));
+        } catch (RejectedExecutionException e) {
+            // Pool is full, the attempt runs here and is not hedged
+            return Utils.makeHttpRequest(url, httpCache, primary);
+        }
+        int outstanding = 1;
+        Future<NewsPage> hedge = null;
+        boolean hedgeChecked = false;
+        IOException failure = null;
+
+        try {
+            while (outstanding > 0) {
+                Future<NewsPage> done;
+                if (!hedgeChecked) {
+                    done = completion.poll(hedgeDelay(url), TimeUnit.MILLISECONDS);
+                    if (done == null) {
+                        hedgeChecked = true;
+                        if (BUDGET.withdraw()) {
+                            RequestHandle copy = parent.child();
+                            handles.add(copy);
+                            try {
+                                // The copy doesn't share the cache entry the first request writes
+                                hedge = completion.submit(request(url, null, copy));
+                                outstanding++;
+                                FeedMetrics.getInstance().recordHedge();
+                            } catch (RejectedExecutionException e) {
+                                // Pool is full, a hedge would only queue behind other requests
+                                BUDGET.refund();
+                            }
+                        }
+                        continue;
+                    }
+                } else {
+                    done = completion.take();
+                }
+                outstanding--;
+
+                try {
+                    NewsPage page = done.get();
+                    if (done == hedge) FeedMetrics.getInstance().recordHedgeWin();
+                    return page;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        failure = (IOException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else {
+                        throw new RuntimeException(cause);
+                    }
+                }
+            }
+            throw failure;
+        } finally {
+            // Cancels the slower request, finished ones are not affected
+            for (RequestHandle handle : handles) handle.cancel();
+        }
+    }
+
+    /**
+     * Attempt to run on the pool, at the priority of the calling thread
+     */
+    private static Callable<NewsPage> request(final URL url, final HttpCache httpCache,
+                                              final RequestHandle handle) {
+        final int priority = Process.getThreadPriority(Process.myTid());
+        return new Callable<NewsPage>() {
+            @Override
+            public NewsPage call() throws IOException {
+                // Pool threads are reused by calls of any priority
+                Process.setThreadPriority(priority);
+                return Utils.makeHttpRequest(url, httpCache, handle);
+            }
+        };
+    }
+
+    private static boolean isRetriable(IOException e) {
+        // Plain IOExceptions are network errors: timeouts, resets, no route
+        return !(e instanceof FetchException) || ((FetchException) e).isRetriable();
+    }
+
+    /**
+     * Full jitter: random delay up to the exponential backoff of the attempt
+     */
+    private static long backoff(int attempt) {
+        long max = Math.min(MAX_BACKOFF, BASE_BACKOFF << attempt);
+        return (long) (Math.random() * max);
+    }
+
+    private static long hedgeDelay(URL url) {
+        long p95 = FeedMetrics.getInstance().latencyPercentile(url, 95, HEDGE_MIN_SAMPLES);
+        if (p95 < 0) return DEFAULT_HEDGE_DELAY;
+        return Math.max(MIN_HEDGE_DELAY, Math.min(MAX_HEDGE_DELAY, p95));
+    }
+}
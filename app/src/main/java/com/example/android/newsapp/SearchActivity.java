@@ -0,0 +1,80 @@
+package com.example.android.newsapp;
+
+import android.arch.lifecycle.Observer;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
+import android.view.View;
+import android.widget.TextView;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Offline search over fetched news, results are updated while the query is typed
+ */
+public class SearchActivity extends AppCompatActivity {
+
+    private static final int MAX_RESULTS = 100;
+
+    private NewsRecyclerAdapter mRecyclerAdapter;
+    private TextView mEmptyStateTextView;
+    private FeedCall<List<News>> mSearchCall;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_search);
+
+        mEmptyStateTextView = (TextView) findViewById(R.id.search_not_found);
+
+        RecyclerView recyclerView = findViewById(R.id.search_results);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        mRecyclerAdapter = new NewsRecyclerAdapter(this);
+        recyclerView.setAdapter(mRecyclerAdapter);
+
+        SearchView searchView = findViewById(R.id.search_query);
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                search(query);
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                search(newText);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Run query, result of the previous query is dropped
+     */
+    private void search(String query) {
+        if (mSearchCall != null) mSearchCall.cancel();
+
+        if (query.trim().isEmpty()) {
+            mSearchCall = null;
+            mRecyclerAdapter.submitList(Collections.<News>emptyList());
+            mEmptyStateTextView.setVisibility(View.GONE);
+            return;
+        }
+
+        final FeedCall<List<News>> call = FeedRepository.getInstance(this)
+                .search(query, MAX_RESULTS);
+        mSearchCall = call;
+        call.observe(this, new Observer<List<News>>() {
+            @Override
+            public void onChanged(List<News> news) {
+                if (call != mSearchCall) return;
+                if (news == null) news = Collections.emptyList();
+                mRecyclerAdapter.submitList(news);
+                mEmptyStateTextView.setVisibility(news.isEmpty() ? View.VISIBLE : View.GONE);
+            }
+        });
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.android.newsapp;
+
+import android.os.SystemClock;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent calls with the same key into one call.
+ * <p>
+ * The first caller runs the call on its own thread, the others wait for it and
+ * share its result. Non-null results are memoized for a short time, so a call
+ * repeated right after completion (e.g. on rotation) is not made again.
+ * <p>
+ * The shared call makes its requests under its own {@link RequestHandle}, which is
+ * cancelled only when every caller waiting for it is cancelled. A caller arriving
+ * after that starts a new call.
+ */
+public class SingleFlight<V> {
+
+    private static final int MAX_MEMOIZED = 16;
+
+    private final ConcurrentHashMap<String, Flight<V>> mInFlight = new ConcurrentHashMap<>();
+    private final Map<String, Memo<V>> mMemo;
+    private final long mMemoMillis;
+    private final AtomicLong mSharedCount = new AtomicLong();
+
+    private static class Memo<V> {
+        final V mValue;
+        final long mCompletedAt;
+
+        Memo(V value, long completedAt) {
+            mValue = value;
+            mCompletedAt = completedAt;
+        }
+    }
+
+    /**
+     * Call which makes its requests under the given handle
+     */
+    public interface Call<V> {
+        V call(RequestHandle handle) throws Exception;
+    }
+
+    /**
+     * Running call and the number of callers waiting for it
+     */
+    private static class Flight<V> {
+        final RequestHandle mHandle = new RequestHandle();
+        final FutureTask<V> mTask;
+        private int mWaiters;
+
+        Flight(final Call<V> call) {
+            mTask = new FutureTask<>(new Callable<V>() {
+                @Override
+                public V call() throws Exception {
+                    return call.call(mHandle);
+                }
+            });
+        }
+
+        /**
+         * Wait for the call until the caller is cancelled
+         *
+         * @param caller - handle of the caller, null if it is never cancelled
+         * @return false if every caller left and the call is cancelled
+         */
+        boolean join(RequestHandle caller) {
+            synchronized (this) {
+                if (mHandle.isCancelled()) return false;
+                mWaiters++;
+            }
+            if (caller != null) caller.adopt(new Waiter(this));
+            return true;
+        }
+
+        void leave() {
+            boolean last;
+            synchronized (this) {
+                last = --mWaiters == 0;
+            }
+            if (last) mHandle.cancel();
+        }
+    }
+
+    /**
+     * Child of a caller handle, leaves the call when the caller is cancelled
+     */
+    private static class Waiter extends RequestHandle {
+        private final Flight<?> mFlight;
+
+        Waiter(Flight<?> flight) {
+            mFlight = flight;
+        }
+
+        @Override
+        public void cancel() {
+            if (isCancelled()) return;
+            super.cancel();
+            mFlight.leave();
+        }
+    }
+
+    /**
+     * @param memoMillis - how long a completed result is reused
+     */
+    public SingleFlight(long memoMillis) {
+        mMemoMillis = memoMillis;
+        mMemo = new LinkedHashMap<String, Memo<V>>(MAX_MEMOIZED, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Memo<V>> eldest) {
+                return size() > MAX_MEMOIZED;
+            }
+        };
+    }
+
+    /**
+     * Run the call or join the one in flight for the same key
+     *
+     * @param caller - handle of the caller, null if it is never cancelled
+     * @return result of the call, null results are not memoized
+     */
+    public V execute(final String key, RequestHandle caller, Call<V> call)
+            throws InterruptedException {
+        synchronized (mMemo) {
+            Memo<V> memo = mMemo.get(key);
+            if (memo != null) {
+                if (SystemClock.elapsedRealtime() - memo.mCompletedAt <= mMemoMillis) {
+                    mSharedCount.incrementAndGet();
+                    return memo.mValue;
+                }
+                mMemo.remove(key);
+            }
+        }
+
+        Flight<V> flight = new Flight<>(call);
+        while (true) {
+            Flight<V> running = mInFlight.putIfAbsent(key, flight);
+            if (running == null) break;
+            if (running.join(caller)) {
+                mSharedCount.incrementAndGet();
+                return getResult(running.mTask);
+            }
+            // Every caller of the running call left, it ends with no result
+            if (mInFlight.replace(key, running, flight)) break;
+        }
+
+        flight.join(caller);
+        try {
+            flight.mTask.run();
+            V value = getResult(flight.mTask);
+            if (value != null) {
+                synchronized (mMemo) {
+                    mMemo.put(key, new Memo<>(value, SystemClock.elapsedRealtime()));
+                }
+            }
+            return value;
+        } finally {
+            mInFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return number of calls served by an in-flight or memoized result
+     */
+    public long getSharedCount() {
+        return mSharedCount.get();
+    }
+
+    private static <V> V getResult(FutureTask<V> task) throws InterruptedException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.android.newsapp;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Cold start timing markers: process start, first frame, first content
+ * (snapshot or cached page) and fresh content. Logged once per process.
+ */
+public class StartupTimer {
+
+    private static final String LOG_TAG = "StartupTimer";
+
+    // Class is loaded with the first activity, used before Nougat
+    private static final long CLASS_LOAD_TIME = SystemClock.elapsedRealtime();
+
+    private static long sFirstFrame, sFirstContent, sFreshContent;
+
+    private StartupTimer() {
+    }
+
+    /**
+     * @return process start in elapsedRealtime base
+     */
+    static long processStart() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return Process.getStartElapsedRealtime();
+        }
+        return CLASS_LOAD_TIME;
+    }
+
+    static void markFirstFrame() {
+        if (sFirstFrame != 0) return;
+        sFirstFrame = SystemClock.elapsedRealtime();
+        Log.i(LOG_TAG, "First frame: " + (sFirstFrame - processStart()) + " ms");
+    }
+
+    static void markFirstContent() {
+        if (sFirstContent != 0) return;
+        sFirstContent = SystemClock.elapsedRealtime();
+        Log.i(LOG_TAG, "First content: " + (sFirstContent - processStart()) + " ms");
+    }
+
+    /**
+     * @return true the first time it is called in the process
+     */
+    static boolean markFreshContent() {
+        if (sFreshContent != 0) return false;
+        markFirstContent();
+        sFreshContent = SystemClock.elapsedRealtime();
+        Log.i(LOG_TAG, "Fresh content: " + (sFreshContent - processStart()) + " ms");
+        return true;
+    }
+}
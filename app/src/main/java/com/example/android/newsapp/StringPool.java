@@ -0,0 +1,36 @@
+package com.example.android.newsapp;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of repeated strings, so equal values share one instance.
+ * <p>
+ * The dictionary is bounded: when it is full it is cleared and filled again by
+ * the values in use, instances already shared stay shared.
+ */
+class StringPool {
+
+    private final ConcurrentHashMap<String, String> mStrings = new ConcurrentHashMap<>();
+    private final int mMaxSize;
+
+    /**
+     * @param maxSize - number of values above which the dictionary is cleared
+     */
+    StringPool(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * @return pooled instance equal to the value
+     */
+    String get(String value) {
+        if (value == null) return null;
+        if (mStrings.size() >= mMaxSize) mStrings.clear();
+        String pooled = mStrings.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    int size() {
+        return mStrings.size();
+    }
+}
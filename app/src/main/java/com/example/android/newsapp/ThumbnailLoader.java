@@ -0,0 +1,410 @@
+package com.example.android.newsapp;
+
+import android.annotation.TargetApi;
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thumbnail pipeline of the feed rows.
+ * <p>
+ * Images are downloaded once into a size-bounded disk cache, decoded on a small
+ * pool downsampled to the view size, and kept in an LRU memory cache sized from
+ * the heap class. Bitmaps dropped from the memory cache and not shown by any row
+ * are reused for the next decodes. Downloads run on their own pool so a slow
+ * image doesn't hold a decode thread, requests of recycled rows are cancelled
+ * and close their connection.
+ * <p>
+ * {@link #load} and {@link #cancel} are called on main thread.
+ */
+public class ThumbnailLoader {
+
+    private static final String LOG_TAG = ThumbnailLoader.class.getName();
+    private static final String CACHE_DIR = "thumbnails";
+    private static final long MAX_DISK_BYTES = 20 * 1024 * 1024;
+    private static final int DECODE_THREADS = 2;
+    private static final int DOWNLOAD_THREADS = 2;
+    //Part of the app heap used by decoded thumbnails
+    private static final int MEMORY_CACHE_DIVIDER = 8;
+
+    private static ThumbnailLoader sInstance;
+
+    private final DiskLru mDisk;
+    private final ThreadPoolExecutor mDecodeExecutor;
+    private final ThreadPoolExecutor mDownloadExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // Accessed on main thread only
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final Map<Bitmap, Integer> mShown = new IdentityHashMap<>();
+    private final Map<Bitmap, Boolean> mEvictedShown = new IdentityHashMap<>();
+
+    private final BitmapPool mPool;
+
+    /**
+     * Load of one row thumbnail
+     */
+    public static class Request {
+        private final ImageView mView;
+        // Closes the connection of the running download
+        private final RequestHandle mHandle = new RequestHandle();
+        // Decode or download step, set by the step before it
+        private volatile Future<?> mFuture;
+        private volatile boolean mCancelled;
+        private Bitmap mBitmap;
+
+        Request(ImageView view) {
+            mView = view;
+        }
+    }
+
+    /**
+     * Decoded bitmaps free for reuse, bounded by total size
+     */
+    private static class BitmapPool {
+        private final List<Bitmap> mBitmaps = new ArrayList<>();
+        private final long mMaxBytes;
+        private long mBytes;
+
+        BitmapPool(long maxBytes) {
+            mMaxBytes = maxBytes;
+        }
+
+        synchronized void put(Bitmap bitmap) {
+            // Before KitKat only bitmaps of the same size can be reused, not worth keeping
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) return;
+            if (!bitmap.isMutable() || bitmap.isRecycled()) return;
+            int size = allocationSize(bitmap);
+            if (size > mMaxBytes) return;
+            while (mBytes + size > mMaxBytes && !mBitmaps.isEmpty()) {
+                mBytes -= allocationSize(mBitmaps.remove(0));
+            }
+            mBitmaps.add(bitmap);
+            mBytes += size;
+        }
+
+        /**
+         * @return bitmap with at least the given allocation or null
+         */
+        synchronized Bitmap get(int bytes) {
+            Iterator<Bitmap> iterator = mBitmaps.iterator();
+            while (iterator.hasNext()) {
+                Bitmap bitmap = iterator.next();
+                int size = allocationSize(bitmap);
+                // Don't waste a much bigger bitmap on a small image
+                if (size >= bytes && size <= bytes * 2) {
+                    iterator.remove();
+                    mBytes -= size;
+                    return bitmap;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @param memoryCacheBytes - size of decoded bitmaps kept in memory, a quarter of
+     *                         it is kept for reuse
+     */
+    ThumbnailLoader(File directory, int memoryCacheBytes) {
+        mDisk = new DiskLru(directory, MAX_DISK_BYTES);
+        mPool = new BitmapPool(memoryCacheBytes / 4);
+        mMemoryCache = new LruCache<String, Bitmap>(memoryCacheBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return allocationSize(bitmap);
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue,
+                                        Bitmap newValue) {
+                // Bitmap on the screen is reused only once its rows let it go
+                if (mShown.containsKey(oldValue)) {
+                    mEvictedShown.put(oldValue, Boolean.TRUE);
+                } else {
+                    mPool.put(oldValue);
+                }
+            }
+        };
+
+        mDecodeExecutor = pool("thumbnail-decode", DECODE_THREADS);
+        mDownloadExecutor = pool("thumbnail-download", DOWNLOAD_THREADS);
+    }
+
+    public static synchronized ThumbnailLoader getInstance(Context context) {
+        if (sInstance == null) {
+            ActivityManager activityManager = (ActivityManager)
+                    context.getSystemService(Context.ACTIVITY_SERVICE);
+            sInstance = new ThumbnailLoader(new File(context.getCacheDir(), CACHE_DIR),
+                    activityManager.getMemoryClass() * 1024 * 1024 / MEMORY_CACHE_DIVIDER);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Show thumbnail in the view
+     *
+     * @param width  - view width in px, image is decoded not bigger than that
+     * @param height - view height in px
+     * @return request to cancel when the view is reused
+     */
+    public Request load(final String url, ImageView view, final int width, final int height) {
+        final Request request = new Request(view);
+        final String key = url + '@' + width + 'x' + height;
+
+        Bitmap cached = mMemoryCache.get(key);
+        if (cached != null) {
+            show(request, cached);
+            return request;
+        }
+
+        view.setImageDrawable(null);
+        decode(request, url, key, width, height, false);
+        return request;
+    }
+
+    /**
+     * Stop the request and release its bitmap, e.g. when the row is recycled
+     */
+    public void cancel(Request request) {
+        if (request == null) return;
+        request.mCancelled = true;
+        request.mHandle.cancel();
+        // A step submitted meanwhile sees the flag and does nothing
+        Future<?> future = request.mFuture;
+        if (future != null) {
+            future.cancel(false);
+            mDecodeExecutor.remove((Runnable) future);
+            mDownloadExecutor.remove((Runnable) future);
+        }
+        if (request.mBitmap != null) {
+            request.mView.setImageDrawable(null);
+            release(request.mBitmap);
+            request.mBitmap = null;
+        }
+    }
+
+    private void show(Request request, Bitmap bitmap) {
+        request.mBitmap = bitmap;
+        Integer count = mShown.get(bitmap);
+        mShown.put(bitmap, count == null ? 1 : count + 1);
+        request.mView.setImageBitmap(bitmap);
+    }
+
+    private void release(Bitmap bitmap) {
+        Integer count = mShown.get(bitmap);
+        if (count == null) return;
+        if (count > 1) {
+            mShown.put(bitmap, count - 1);
+            return;
+        }
+        mShown.remove(bitmap);
+        if (mEvictedShown.remove(bitmap) != null) mPool.put(bitmap);
+    }
+
+    /**
+     * Decode the image from disk cache on decode pool, a missing image is downloaded first
+     *
+     * @param downloaded - image was just downloaded, it is not downloaded again
+     */
+    private void decode(final Request request, final String url, final String key,
+                        final int width, final int height, final boolean downloaded) {
+        request.mFuture = mDecodeExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (request.mCancelled) return;
+                File file = fileOf(url);
+                if (!file.exists()) {
+                    if (!downloaded) download(request, url, key, width, height);
+                    return;
+                }
+                // Keeps recently shown images in the disk cache
+                file.setLastModified(System.currentTimeMillis());
+                deliver(request, key, decode(file, width, height));
+            }
+        });
+    }
+
+    /**
+     * Download the image on download pool, then decode it
+     */
+    private void download(final Request request, final String url, final String key,
+                          final int width, final int height) {
+        request.mFuture = mDownloadExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (request.mCancelled) return;
+                if (download(url, fileOf(url), request.mHandle)) {
+                    decode(request, url, key, width, height, true);
+                }
+            }
+        });
+    }
+
+    /**
+     * Show decoded bitmap on main thread unless the row was recycled meanwhile
+     */
+    private void deliver(final Request request, final String key, final Bitmap bitmap) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (bitmap == null) return;
+                if (request.mCancelled) {
+                    mPool.put(bitmap);
+                    return;
+                }
+                mMemoryCache.put(key, bitmap);
+                show(request, bitmap);
+            }
+        });
+    }
+
+    /**
+     * Decode the image downsampled to the view size. Runs on decode thread.
+     *
+     * @return decoded bitmap or null
+     */
+    private Bitmap decode(File file, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            mDisk.delete(file);
+            return null;
+        }
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width
+                && options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        // Thumbnails have no alpha, half the memory of ARGB_8888
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        options.inMutable = true;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            int decodedWidth = (options.outWidth + sampleSize - 1) / sampleSize;
+            int decodedHeight = (options.outHeight + sampleSize - 1) / sampleSize;
+            options.inBitmap = mPool.get(decodedWidth * decodedHeight * 2);
+        }
+        try {
+            return decodeFile(file.getPath(), options);
+        } catch (IllegalArgumentException e) {
+            // Pooled bitmap doesn't fit
+            options.inBitmap = null;
+            return decodeFile(file.getPath(), options);
+        }
+    }
+
+    /**
+     * Platform decoder, tests replace it to see the reused bitmaps
+     */
+    Bitmap decodeFile(String path, BitmapFactory.Options options) {
+        return BitmapFactory.decodeFile(path, options);
+    }
+
+    /**
+     * Download image into the disk cache. Runs on download thread.
+     *
+     * @param handle - handle of the row request, cancelling it closes the connection
+     */
+    private boolean download(String url, File file, RequestHandle handle) {
+        NewsHttpClient client = NewsHttpClient.getInstance();
+        // Two rows may show the same image, each download writes its own file
+        File temp = new File(file.getPath() + "." + Thread.currentThread().getId()
+                + DiskLru.TEMP_SUFFIX);
+        HttpURLConnection connection = null;
+        InputStream in = null;
+        boolean failed = true;
+        try {
+            connection = client.open(new URL(url));
+            if (!handle.attach(connection)) return false;
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) return false;
+            in = connection.getInputStream();
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+            } finally {
+                out.close();
+            }
+            failed = false;
+        } catch (IOException e) {
+            // Recycled row closed the connection
+            if (!handle.isCancelled()) Log.e(LOG_TAG, "Problem downloading thumbnail", e);
+        } finally {
+            if (connection != null) handle.detach(connection);
+            client.release(connection, in, failed);
+        }
+
+        if (failed) {
+            temp.delete();
+            return false;
+        }
+        if (!mDisk.publish(temp, file)) return false;
+        mDisk.trim();
+        return true;
+    }
+
+    private File fileOf(String url) {
+        return new File(mDisk.getDirectory(), Long.toHexString(News.urlId(url)));
+    }
+
+    private static ThreadPoolExecutor pool(final String name, int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, name + "-" + mCount.incrementAndGet());
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static int allocationSize(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+}
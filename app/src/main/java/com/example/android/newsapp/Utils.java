@@ -4,26 +4,27 @@ package com.example.android.newsapp;
 import android.content.Context;
 import android.text.Html;
 import android.util.Log;
+import android.util.MalformedJsonException;
 import android.widget.Toast;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.Charset;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
 
 public class Utils {
 
@@ -34,7 +35,11 @@ public class Utils {
 
     }
 
-    public static List<News> extractNews(String jsonResponse) {
+    /**
+     * JSONObject parser of a whole response, replaced by {@link NewsJsonParser}.
+     * Kept as the reference the streaming parser is tested against.
+     */
+    static List<News> extractNews(String jsonResponse) {
         List<News> news = new ArrayList<>();
 
         //Try to parse
@@ -47,12 +52,11 @@ public class Utils {
             if (response.getString("status").equals("ok")) {
 
                 //Init Max pages
-                int totalPages = response.getInt("pages");
-                if (MAX_PAGES == 0 || MAX_PAGES != totalPages) MAX_PAGES = totalPages;
+                setMaxPages(response.getInt("pages"));
 
                 JSONArray results = response.getJSONArray("results");
 
-                for (int i = 0; i < response.length(); i++) {
+                for (int i = 0; i < results.length(); i++) {
                     JSONObject current = results.getJSONObject(i);
                     JSONObject fields = current.getJSONObject("fields");
 
@@ -89,33 +93,40 @@ public class Utils {
     }
 
     /**
-     * Fetching Url
+     * Fetching Url without touching shared max pages, safe for concurrent requests
      *
      * @param requestUrl
-     * @return
+     * @param httpCache  - validator cache, may be null
+     * @return page with its response.pages, empty page on failure
      */
-    public static List<News> fetchNewsUrl(String requestUrl) {
+    public static NewsPage fetchNewsPage(String requestUrl, HttpCache httpCache) {
+        FeedCall<?> call = FeedCall.current();
+        return fetchNewsPage(requestUrl, httpCache,
+                call != null ? call.getHandle() : new RequestHandle());
+    }
+
+    /**
+     * Fetching Url under the given handle
+     *
+     * @param handle - cancels the requests of the fetch
+     * @return page with its response.pages, empty page on failure
+     */
+    static NewsPage fetchNewsPage(String requestUrl, HttpCache httpCache, RequestHandle handle) {
 
         // Create URL object
         URL url = createUrl(requestUrl);
 
-        //Create List object for result
-        List<News> news;
+        //Create page object for result
+        NewsPage page = new NewsPage(new ArrayList<News>(), 0);
 
-        // Perform HTTP request to the URL and receive a JSON response back
-        String jsonResponse = null;
-        try {
-            jsonResponse = makeHttpRequest(url);
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Error closing input stream", e);
+        // Perform HTTP request to the URL and parse the JSON response while it is downloading,
+        // retried and hedged on slow or failing network
+        if (url != null) {
+            NewsPage fetched = ResilientFetch.fetch(url, httpCache, handle);
+            if (fetched != null) page = fetched;
         }
 
-        // Extract relevant fields from the JSON response and create an {@link Event} object
-        news = extractNews(jsonResponse);
-
-
-        // Return the {@link Event}
-        return news;
+        return page;
     }
 
     /**
@@ -132,58 +143,129 @@ public class Utils {
     }
 
     /**
-     * Make an HTTP request to the given URL and return a String as the response.
+     * Make an HTTP request to the given URL and stream-parse the response into {@link News} list.
+     * <p>
+     * Response is requested gzip-compressed. With a cache, stored validators are
+     * sent and 304 Not Modified is served from the stored body.
+     *
+     * @param handle - cancels the request by closing its connection
+     * @throws FetchException on error status or malformed response, IOException on network error
      */
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = "";
+    static NewsPage makeHttpRequest(URL url, HttpCache httpCache, RequestHandle handle)
+            throws IOException {
+        List<News> news;
+        int totalPages;
 
-        // If the URL is null, then return early.
-        if (url == null) {
-            return jsonResponse;
-        }
+        String key = url.toString();
+        HttpCache.Entry cached = httpCache != null ? httpCache.get(key) : null;
+        HttpCache.Editor editor = null;
 
+        FeedMetrics.Request metrics = FeedMetrics.getInstance().start(url);
+        NewsHttpClient client = NewsHttpClient.getInstance();
         HttpURLConnection urlConnection = null;
+        InputStream responseStream = null;
         InputStream inputStream = null;
+        boolean failed = true;
         try {
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(10000 /* milliseconds */);
-            urlConnection.setConnectTimeout(15000 /* milliseconds */);
-            urlConnection.setRequestMethod("GET");
+            urlConnection = client.open(url);
+            // Cancelled request closes the connection to stop the read
+            if (!handle.attach(urlConnection)) {
+                throw new IOException("Request cancelled");
+            }
+            // Explicit header turns off transparent decoding, body is ungzipped below
+            urlConnection.setRequestProperty("Accept-Encoding", "gzip");
+            if (cached != null) {
+                if (cached.getETag() != null)
+                    urlConnection.setRequestProperty("If-None-Match", cached.getETag());
+                if (cached.getLastModified() != null)
+                    urlConnection.setRequestProperty("If-Modified-Since", cached.getLastModified());
+            }
             urlConnection.connect();
+            metrics.connected();
+
+            int responseCode = urlConnection.getResponseCode();
+            metrics.firstByte(responseCode);
+            CountingInputStream networkStream = null;
+            CountingInputStream decodedStream = null;
+
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                httpCache.recordNotModified(cached);
+                inputStream = httpCache.openBody(cached);
+            } else if (responseCode == HttpURLConnection.HTTP_OK) {
+                responseStream = urlConnection.getInputStream();
+                networkStream = new CountingInputStream(responseStream);
+                inputStream = networkStream;
+                if ("gzip".equalsIgnoreCase(urlConnection.getContentEncoding())) {
+                    inputStream = new GZIPInputStream(inputStream);
+                }
+                decodedStream = new CountingInputStream(inputStream);
+                inputStream = decodedStream;
+
+                String eTag = urlConnection.getHeaderField("ETag");
+                String lastModified = urlConnection.getHeaderField("Last-Modified");
+                if (httpCache != null && (eTag != null || lastModified != null)) {
+                    editor = httpCache.edit(key, eTag, lastModified, inputStream);
+                    inputStream = editor;
+                }
+            } else {
+                throw FetchException.forStatus(responseCode);
+            }
 
-            inputStream = urlConnection.getInputStream();
-            jsonResponse = readFromStream(inputStream);
+            NewsJsonParser parser = new NewsJsonParser();
+            try {
+                news = parser.parse(inputStream);
+            } catch (MalformedJsonException | EOFException e) {
+                // Body is broken or cut short, the same request gets the same body
+                throw new FetchException("Malformed response", 0, false, e);
+            }
+            totalPages = parser.getTotalPages();
+            metrics.parsed(networkStream != null ? networkStream.getCount() : 0, news.size());
+
+            failed = false;
+            if (editor != null) editor.commit();
+            if (httpCache != null && networkStream != null) {
+                httpCache.recordResponse(networkStream.getCount(), decodedStream.getCount());
+            }
 
         } catch (IOException e) {
-            Log.e(LOG_TAG, "Problem retrieving the JSON results.", e);
+            if (handle.isCancelled()) {
+                metrics.cancelled();
+            } else {
+                metrics.failed(e.toString());
+            }
+            throw e;
+        } catch (IllegalStateException | NumberFormatException e) {
+            metrics.failed(e.toString());
+            throw new FetchException("Malformed response", 0, false, e);
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
+            metrics.finish();
+            if (urlConnection != null) handle.detach(urlConnection);
+            if (editor != null) {
+                editor.abort();
             }
+            // Keep the socket alive for the next page
+            client.release(urlConnection, responseStream, failed);
             if (inputStream != null) {
                 inputStream.close();
             }
         }
-        return jsonResponse;
+        return new NewsPage(news, totalPages);
     }
 
-    /**
-     * Convert the {@link InputStream} into a String which contains the
-     * whole JSON response from the server.
-     */
-    private static String readFromStream(InputStream inputStream) throws IOException {
-        StringBuilder output = new StringBuilder();
-        if (inputStream != null) {
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
-            BufferedReader reader = new BufferedReader(inputStreamReader);
-            String line = reader.readLine();
-            while (line != null) {
-                output.append(line);
-                line = reader.readLine();
-            }
+    // SimpleDateFormat is not thread safe, keep one set of formats per thread
+    private static final ThreadLocal<DateFormat[]> DATE_FORMATS = new ThreadLocal<DateFormat[]>() {
+        @Override
+        protected DateFormat[] initialValue() {
+            DateFormat[] formats = {
+                    new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'"),
+                    new SimpleDateFormat("dd/MM/yyyy HH:mm")
+            };
+            // API dates are UTC, rows show them in UTC like News.formatDisplayDate
+            TimeZone utc = TimeZone.getTimeZone("UTC");
+            for (DateFormat format : formats) format.setTimeZone(utc);
+            return formats;
         }
-        return output.toString();
-    }
+    };
 
     /**
      * method parse and convert ISO 8601 date to yyyy.MM.dd
@@ -193,28 +275,25 @@ public class Utils {
      */
     public static String formattedDate(String datetimetz) {
 
-        if (datetimetz == "") return "";
-
-        String readyDate;
-        String readyTime;
+        if (datetimetz == null || datetimetz.isEmpty()) return "";
 
-        DateFormat dateFormatParser = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        DateFormat[] formats = DATE_FORMATS.get();
         try {
 
-            Date currentData = dateFormatParser.parse(datetimetz);
-            DateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-            DateFormat timeFormat = new SimpleDateFormat("HH:mm");
-            readyTime = timeFormat.format(currentData);
-            readyDate = dateFormat.format(currentData);
+            Date currentData = formats[0].parse(datetimetz);
+            return formats[1].format(currentData);
 
         } catch (ParseException e) {
             e.printStackTrace();
             return "";
         }
-        return readyDate + " " + readyTime;
     }
 
     public static int getMaxPages() {
         return MAX_PAGES;
     }
+
+    static void setMaxPages(int totalPages) {
+        if (MAX_PAGES == 0 || MAX_PAGES != totalPages) MAX_PAGES = totalPages;
+    }
 }
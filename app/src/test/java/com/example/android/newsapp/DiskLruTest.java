@@ -0,0 +1,99 @@
+package com.example.android.newsapp;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Size accounting and eviction order of {@link DiskLru}
+ */
+public class DiskLruTest {
+
+    private static final int FILE_SIZE = 1000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mDirectory;
+    private DiskLru mDisk;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = mFolder.newFolder("lru");
+        // Room for two files
+        mDisk = new DiskLru(mDirectory, 2 * FILE_SIZE + FILE_SIZE / 2);
+    }
+
+    @Test
+    public void rewrittenFileIsCountedOnce() throws IOException {
+        for (int i = 0; i < 3; i++) publish("a", 1000L);
+        publish("b", 2000L);
+
+        assertTrue(new File(mDirectory, "a").exists());
+        assertTrue(new File(mDirectory, "b").exists());
+    }
+
+    @Test
+    public void leastRecentlyModifiedFileIsDeletedAboveMaxBytes() throws IOException {
+        publish("a", 2000L);
+        publish("b", 1000L);
+        publish("c", 3000L);
+
+        assertTrue(new File(mDirectory, "a").exists());
+        assertFalse(new File(mDirectory, "b").exists());
+        assertTrue(new File(mDirectory, "c").exists());
+    }
+
+    @Test
+    public void deletedFileMakesRoom() throws IOException {
+        publish("a", 1000L);
+        publish("b", 2000L);
+        mDisk.delete(new File(mDirectory, "b"));
+        publish("c", 3000L);
+
+        assertTrue(new File(mDirectory, "a").exists());
+        assertTrue(new File(mDirectory, "c").exists());
+    }
+
+    @Test
+    public void fileBeingWrittenIsNotCountedOrDeleted() throws IOException {
+        File temp = write("d" + DiskLru.TEMP_SUFFIX, 3 * FILE_SIZE);
+        publish("a", 1000L);
+        publish("b", 2000L);
+
+        assertTrue(temp.exists());
+        assertTrue(new File(mDirectory, "a").exists());
+        assertTrue(new File(mDirectory, "b").exists());
+    }
+
+    /**
+     * Write a file through a temporary one and trim the directory
+     *
+     * @param modified - time of the last use of the file
+     */
+    private void publish(String name, long modified) throws IOException {
+        File file = new File(mDirectory, name);
+        assertTrue(mDisk.publish(write(name + ".1" + DiskLru.TEMP_SUFFIX, FILE_SIZE), file));
+        file.setLastModified(modified);
+        mDisk.trim();
+    }
+
+    private File write(String name, int size) throws IOException {
+        File file = new File(mDirectory, name);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[size]);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.android.newsapp;
+
+/**
+ * Clock moved by the test
+ */
+class FakeClock implements Clock {
+
+    private long mTime;
+
+    FakeClock(long time) {
+        mTime = time;
+    }
+
+    synchronized void advance(long millis) {
+        mTime += millis;
+    }
+
+    @Override
+    public synchronized long currentTimeMillis() {
+        return mTime;
+    }
+}
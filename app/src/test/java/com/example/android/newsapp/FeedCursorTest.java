@@ -0,0 +1,176 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pagination of a simulated newest-first feed which moves during the session
+ */
+public class FeedCursorTest {
+
+    private static final int PAGE_SIZE = 10;
+    // Newest news of the feed, 2018-07-12T12:53:20Z
+    private static final long NEWEST = 1531400000000L;
+
+    /**
+     * Feed of the API: news are published at the top, pages are cut from the top
+     */
+    private static class SimulatedFeed {
+        // Index of the oldest news, newer news have higher indexes
+        private int mNewest;
+
+        SimulatedFeed(int size) {
+            mNewest = size - 1;
+        }
+
+        void publish(int count) {
+            mNewest += count;
+        }
+
+        List<News> page(int page) {
+            List<News> news = new ArrayList<>();
+            int first = mNewest - (page - 1) * PAGE_SIZE;
+            for (int index = first; index > first - PAGE_SIZE && index >= 0; index--) {
+                news.add(news(index));
+            }
+            return news;
+        }
+    }
+
+    @Test
+    public void stillFeedIsTakenWithoutGapsOrRepeats() {
+        SimulatedFeed feed = new SimulatedFeed(100);
+        FeedCursor cursor = new FeedCursor(PAGE_SIZE);
+        List<News> taken = takeAll(feed, cursor, 0);
+
+        assertContinuous(taken, 99, 100);
+    }
+
+    @Test
+    public void movingFeedIsTakenWithoutGapsOrRepeats() {
+        SimulatedFeed feed = new SimulatedFeed(200);
+        FeedCursor cursor = new FeedCursor(PAGE_SIZE);
+        // Three news published before every page, more than a page now and then
+        List<News> taken = takeAll(feed, cursor, 3);
+
+        assertContinuous(taken, 199, 200);
+    }
+
+    @Test
+    public void feedMovedByMoreThanAPageSkipsToTheNextUnseenNews() {
+        SimulatedFeed feed = new SimulatedFeed(100);
+        FeedCursor cursor = new FeedCursor(PAGE_SIZE);
+        cursor.accept(1, feed.page(1));
+
+        feed.publish(25);
+        int page = cursor.nextPage();
+        List<News> accepted = cursor.accept(page, feed.page(page));
+        while (accepted.isEmpty()) {
+            page = cursor.nextPage();
+            accepted = cursor.accept(page, feed.page(page));
+        }
+        assertEquals(89, index(accepted.get(0)));
+    }
+
+    @Test
+    public void prependedNewsAreNotTakenAgain() {
+        SimulatedFeed feed = new SimulatedFeed(100);
+        FeedCursor cursor = new FeedCursor(PAGE_SIZE);
+        cursor.accept(1, feed.page(1));
+
+        feed.publish(5);
+        cursor.markSeen(feed.page(1).subList(0, 5));
+        assertTrue(cursor.isSeen(news(104)));
+
+        int page = cursor.nextPage();
+        List<News> accepted = cursor.accept(page, feed.page(page));
+        assertEquals(89, index(accepted.get(0)));
+    }
+
+    @Test
+    public void staleFirstPageBehindAPageOfNewsSkipsThePublishedNews() {
+        SimulatedFeed feed = new SimulatedFeed(100);
+        FeedCursor cursor = new FeedCursor(PAGE_SIZE);
+        // First page was stored an hour ago, more than a page was published since
+        List<News> stale = feed.page(1);
+        feed.publish(15);
+
+        cursor.accept(1, stale);
+        assertTrue(cursor.accept(2, feed.page(2)).isEmpty());
+        // Published news of page 2 put the stale page below them, the next load takes the rest
+        assertEquals(3, cursor.nextPage());
+        List<News> accepted = cursor.accept(3, feed.page(3));
+        assertEquals(89, index(accepted.get(0)));
+    }
+
+    @Test
+    public void staleFirstPageBehindManyNewsIsCaughtUpWithFewLoads() {
+        SimulatedFeed feed = new SimulatedFeed(200);
+        FeedCursor cursor = new FeedCursor(PAGE_SIZE);
+        List<News> stale = feed.page(1);
+        feed.publish(45);
+
+        cursor.accept(1, stale);
+        int loads = 0;
+        List<News> accepted;
+        do {
+            int page = cursor.nextPage();
+            accepted = cursor.accept(page, feed.page(page));
+            loads++;
+        } while (accepted.isEmpty());
+        assertEquals(189, index(accepted.get(0)));
+        assertTrue("Caught up after " + loads + " loads", loads <= 3);
+    }
+
+    @Test
+    public void staleFirstPageBehindFewNewsDropsRepeats() {
+        SimulatedFeed feed = new SimulatedFeed(100);
+        FeedCursor cursor = new FeedCursor(PAGE_SIZE);
+        List<News> stale = feed.page(1);
+        feed.publish(4);
+
+        cursor.accept(1, stale);
+        List<News> accepted = cursor.accept(2, feed.page(2));
+        // Repeats of the stale page are dropped
+        assertEquals(89, index(accepted.get(0)));
+    }
+
+    private static List<News> takeAll(SimulatedFeed feed, FeedCursor cursor, int publishPerPage) {
+        List<News> taken = new ArrayList<>();
+        int loads = 0;
+        for (int page = cursor.nextPage(); ; page = cursor.nextPage()) {
+            List<News> news = feed.page(page);
+            if (news.isEmpty()) break;
+            taken.addAll(cursor.accept(page, news));
+            loads++;
+            feed.publish(loads % 5 == 0 ? PAGE_SIZE + publishPerPage : publishPerPage);
+        }
+        return taken;
+    }
+
+    /**
+     * Taken news are the feed from the newest index down, each once
+     */
+    private static void assertContinuous(List<News> taken, int newest, int count) {
+        assertEquals(count, taken.size());
+        for (int i = 0; i < taken.size(); i++) {
+            assertEquals(newest - i, index(taken.get(i)));
+        }
+    }
+
+    private static News news(int index) {
+        return new News("Story " + index, "Trail text " + index,
+                "https://www.theguardian.com/world/2018/jul/12/story-" + index,
+                News.formatDate(NEWEST - (1000 - index) * 60000L), "World news", "Correspondent");
+    }
+
+    private static int index(News news) {
+        String title = news.getmTitle();
+        return Integer.parseInt(title.substring(title.indexOf(' ') + 1));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.android.newsapp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Recording of requests in {@link FeedMetrics}. Metrics are shared, every test uses
+ * its own section.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FeedMetricsTest {
+
+    private final FeedMetrics mMetrics = FeedMetrics.getInstance();
+
+    @Test
+    public void requestIsKeyedBySectionAndPage() throws Exception {
+        URL url = url("metricsalpha", 3);
+        FeedMetrics.Request request = mMetrics.start(url);
+        request.connected();
+        request.firstByte(200);
+        request.parsed(12000, 10);
+        request.finish();
+
+        JSONObject section = mMetrics.toJson().getJSONObject("sections")
+                .getJSONObject("metricsalpha");
+        assertEquals(1, section.getLong("requests"));
+        assertEquals(12000, section.getLong("bytes"));
+        assertEquals(10, section.getLong("items"));
+
+        JSONObject recent = last(mMetrics.toJson().getJSONArray("recent"));
+        assertEquals("metricsalpha", recent.getString("section"));
+        assertEquals(3, recent.getInt("page"));
+        assertEquals(20, recent.getInt("pageSize"));
+    }
+
+    @Test
+    public void cancelledRequestIsLeftOutOfLatency() throws Exception {
+        URL url = url("metricsbeta", 1);
+        FeedMetrics.Request request = mMetrics.start(url);
+        request.cancelled();
+        request.finish();
+
+        JSONObject section = mMetrics.toJson().getJSONObject("sections")
+                .getJSONObject("metricsbeta");
+        assertEquals(1, section.getLong("cancelled"));
+        assertEquals(0, section.getJSONObject("totalMs").getLong("count"));
+        assertEquals(-1, mMetrics.latencyPercentile(url, 95, 1));
+    }
+
+    @Test
+    public void latencyNeedsEnoughSamples() throws Exception {
+        URL url = url("metricsgamma", 1);
+        for (int i = 0; i < 3; i++) mMetrics.start(url).finish();
+        assertEquals(-1, mMetrics.latencyPercentile(url, 95, 4));
+        assertTrue(mMetrics.latencyPercentile(url, 95, 3) >= 1);
+    }
+
+    @Test
+    public void requestFinishedOnWorkerIsReportedOnAnotherThread() throws Exception {
+        final URL url = url("metricsdelta", 2);
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                FeedMetrics.Request request = mMetrics.start(url);
+                request.firstByte(503);
+                request.failed("HTTP 503");
+                request.finish();
+            }
+        });
+        worker.start();
+        worker.join();
+
+        JSONObject recent = last(mMetrics.toJson().getJSONArray("recent"));
+        assertEquals("metricsdelta", recent.getString("section"));
+        assertEquals(503, recent.getInt("code"));
+        assertEquals("HTTP 503", recent.getString("error"));
+    }
+
+    private static JSONObject last(JSONArray array) throws JSONException {
+        return array.getJSONObject(array.length() - 1);
+    }
+
+    private static URL url(String section, int page) throws MalformedURLException {
+        return new URL("https://content.guardianapis.com/" + section + "?page=" + page
+                + "&page-size=20&show-fields=byline");
+    }
+}
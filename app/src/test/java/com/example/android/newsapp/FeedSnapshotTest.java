@@ -0,0 +1,122 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round trip of rows through {@link FeedSnapshot} and rejection of damaged files
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FeedSnapshotTest {
+
+    private static final String SECTION = "world";
+
+    private FeedSnapshot mSnapshot;
+    private File mFile;
+
+    @Before
+    public void setUp() {
+        mSnapshot = new FeedSnapshot(RuntimeEnvironment.application);
+        mFile = new File(RuntimeEnvironment.application.getFilesDir(), "feed_snapshot.bin");
+        mFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void rowsSurviveRoundTrip() {
+        List<News> saved = rows();
+        mSnapshot.save(SECTION, saved);
+
+        List<News> loaded = mSnapshot.load(SECTION);
+        assertEquals(saved.size(), loaded.size());
+        for (int i = 0; i < saved.size(); i++) {
+            News expected = saved.get(i);
+            News actual = loaded.get(i);
+            assertTrue("Row " + i, expected.hasSameContent(actual));
+            assertEquals(expected.getmUrl(), actual.getmUrl());
+            assertEquals(expected.getmDate(), actual.getmDate());
+            assertEquals(expected.getId(), actual.getId());
+        }
+    }
+
+    @Test
+    public void rowIsDecodedOnce() {
+        mSnapshot.save(SECTION, rows());
+        List<News> loaded = mSnapshot.load(SECTION);
+        assertSame(loaded.get(1), loaded.get(1));
+    }
+
+    @Test
+    public void otherSectionIsIgnored() {
+        mSnapshot.save(SECTION, rows());
+        assertNull(mSnapshot.load("science"));
+    }
+
+    @Test
+    public void corruptedBodyIsRejected() throws IOException {
+        mSnapshot.save(SECTION, rows());
+        // Flip one byte of the last row
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.seek(file.length() - 3);
+            int value = file.read();
+            file.seek(file.length() - 3);
+            file.write(value ^ 0x20);
+        } finally {
+            file.close();
+        }
+        assertNull(mSnapshot.load(SECTION));
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws IOException {
+        mSnapshot.save(SECTION, rows());
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.setLength(file.length() - 10);
+        } finally {
+            file.close();
+        }
+        assertNull(mSnapshot.load(SECTION));
+    }
+
+    @Test
+    public void missingFileIsNoSnapshot() {
+        assertNull(mSnapshot.load(SECTION));
+    }
+
+    private static List<News> rows() {
+        return Arrays.asList(
+                new News("Mars lake found", "Radar shows liquid water",
+                        "https://www.theguardian.com/science/2018/jul/25/mars-lake",
+                        "2018-07-25T17:00:00Z", "Science", "Ian Sample",
+                        "https://media.guim.co.uk/1/500.jpg"),
+                // Section and byline repeat, no thumbnail
+                new News("Heatwave – what it means", "",
+                        "https://www.theguardian.com/science/2018/jul/25/heatwave",
+                        "2018-07-25T12:30:00Z", "Science", "Ian Sample"),
+                // Date not in the API format is kept as it is
+                new News("Café owners react", "Trail text",
+                        "https://www.theguardian.com/world/2018/jul/24/cafe",
+                        "24 July 2018", "World news", ""));
+    }
+}
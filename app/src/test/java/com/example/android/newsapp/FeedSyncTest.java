@@ -0,0 +1,116 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sync against a mock API with a clock moved by the test
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FeedSyncTest {
+
+    private static final long START = 1531400000000L;
+    private static final List<String> SECTIONS = Arrays.asList("science", "sport");
+
+    private MockWebServer mServer;
+    private FakeClock mClock;
+    private NewsStore mStore;
+    private FeedSync mSync;
+    // Fetches of the same url are shared for a while, every sync asks for new urls
+    private int mRound;
+
+    @Before
+    public void setUp() throws IOException {
+        final String body = Fixtures.string("search_page.json");
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody(body);
+            }
+        });
+        mServer.start();
+
+        mClock = new FakeClock(START);
+        mStore = new NewsStore(RuntimeEnvironment.application, null,
+                TimeUnit.MINUTES.toMillis(10), 2000, mClock);
+        NewsStore.setInstance(mStore);
+        mSync = new FeedSync(RuntimeEnvironment.application, new MultiSectionFeed.UrlFactory() {
+            @Override
+            public String pageUrl(String section, int page) {
+                return mServer.url("/search?section=" + section + "&page=" + page
+                        + "&round=" + mRound).toString();
+            }
+        }, mClock, FeedSync.SYNC_PAGES, FeedSync.MIN_PAGE_AGE);
+    }
+
+    @After
+    public void tearDown() throws IOException, InterruptedException {
+        NewsStore.setInstance(null);
+        mStore.close();
+        // Shared index is opened again by the next test
+        NewsSearchIndex.awaitIndexed();
+        NewsSearchIndex.getInstance(RuntimeEnvironment.application).close();
+        mServer.shutdown();
+    }
+
+    @Test
+    public void syncStoresPagesOfAllSections() throws InterruptedException {
+        assertEquals(4, sync());
+        assertEquals(4, mServer.getRequestCount());
+
+        for (String section : SECTIONS) {
+            for (int page = 1; page <= FeedSync.SYNC_PAGES; page++) {
+                NewsStore.CachedPage cached = mStore.getPage(section, page);
+                assertEquals(6, cached.getNews().size());
+                assertEquals(START, cached.getFetchedAt());
+            }
+        }
+    }
+
+    @Test
+    public void recentlyFetchedPagesAreSkipped() throws InterruptedException {
+        sync();
+
+        mClock.advance(FeedSync.MIN_PAGE_AGE - 1);
+        assertEquals(0, sync());
+        assertEquals(4, mServer.getRequestCount());
+
+        mClock.advance(1);
+        assertEquals(4, sync());
+        assertEquals(8, mServer.getRequestCount());
+        assertEquals(START + FeedSync.MIN_PAGE_AGE, mStore.getPage("science", 1).getFetchedAt());
+    }
+
+    @Test
+    public void syncedPagesGoStaleByTheStoreClock() throws InterruptedException {
+        sync();
+        assertFalse(mStore.isStale(mStore.getPage("science", 1)));
+
+        mClock.advance(TimeUnit.MINUTES.toMillis(10) + 1);
+        assertTrue(mStore.isStale(mStore.getPage("science", 1)));
+    }
+
+    private int sync() throws InterruptedException {
+        mRound++;
+        return mSync.sync(SECTIONS);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * {@link FetchPolicy} chosen by {@link NetworkEstimator} from request timings
+ */
+public class FetchPolicyTest {
+
+    @Test
+    public void noSamplesKeepDefaultPages() {
+        NetworkEstimator estimator = new NetworkEstimator();
+        assertSame(FetchPolicy.DEFAULT, estimator.policy(false));
+        assertSame(NetworkEstimator.METERED, estimator.policy(true));
+    }
+
+    @Test
+    public void fastLinkGetsBiggerPages() {
+        NetworkEstimator estimator = new NetworkEstimator();
+        // 64 KB in 100 ms after 150 ms to first byte
+        for (int i = 0; i < 5; i++) estimator.update(150, 64 * 1024, 100);
+        assertSame(NetworkEstimator.FAST, estimator.policy(false));
+        // Fast but metered link keeps small pages
+        assertSame(NetworkEstimator.METERED, estimator.policy(true));
+    }
+
+    @Test
+    public void slowLinkDropsTrailTextAndThumbnails() {
+        NetworkEstimator estimator = new NetworkEstimator();
+        for (int i = 0; i < 5; i++) estimator.update(2000, 16 * 1024, 400);
+        FetchPolicy policy = estimator.policy(true);
+        assertSame(NetworkEstimator.SLOW, policy);
+        assertFalse(policy.isTrailTextAllowed());
+        assertFalse(policy.isThumbnailsAllowed());
+    }
+
+    @Test
+    public void smallBodiesDontCountAsThroughput() {
+        NetworkEstimator estimator = new NetworkEstimator();
+        // 1 KB in 500 ms would be a slow link, but the time is latency
+        for (int i = 0; i < 5; i++) estimator.update(300, 1024, 500);
+        assertSame(NetworkEstimator.NORMAL, estimator.policy(false));
+    }
+
+    @Test
+    public void estimateFollowsTheLink() {
+        NetworkEstimator estimator = new NetworkEstimator();
+        for (int i = 0; i < 5; i++) estimator.update(150, 64 * 1024, 100);
+        for (int i = 0; i < 10; i++) estimator.update(2500, 64 * 1024, 4000);
+        assertSame(NetworkEstimator.SLOW, estimator.policy(false));
+    }
+
+    @Test
+    public void otherPageSizesAreStoredApart() {
+        assertEquals("world", FetchPolicy.DEFAULT.storeKey("world"));
+        assertEquals("world@30", NetworkEstimator.FAST.storeKey("world"));
+        assertEquals("world", NetworkEstimator.SLOW.storeKey("world"));
+    }
+}
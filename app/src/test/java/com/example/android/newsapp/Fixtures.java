@@ -0,0 +1,33 @@
+package com.example.android.newsapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Recorded API responses from src/test/resources/fixtures
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static byte[] bytes(String name) throws IOException {
+        InputStream in = Fixtures.class.getClassLoader().getResourceAsStream("fixtures/" + name);
+        if (in == null) throw new IOException("No fixture " + name);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    static String string(String name) throws IOException {
+        return new String(bytes(name), Charset.forName("UTF-8"));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.android.newsapp;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class HttpCacheTest {
+
+    private static final int BODY_SIZE = 1000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mDirectory;
+    private HttpCache mCache;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = mFolder.newFolder("http");
+        // Room for two entries with their validators
+        mCache = new HttpCache(mDirectory, 2 * BODY_SIZE + 200);
+    }
+
+    @Test
+    public void committedEntryReadsBack() throws IOException {
+        byte[] body = body(1);
+        store("https://a", "\"v1\"", body);
+
+        HttpCache.Entry entry = mCache.get("https://a");
+        assertNotNull(entry);
+        assertEquals("\"v1\"", entry.getETag());
+        assertNull(entry.getLastModified());
+        assertArrayEquals(body, read(mCache.openBody(entry)));
+    }
+
+    @Test
+    public void newerResponseReplacesEntry() throws IOException {
+        store("https://a", "\"v1\"", body(1));
+        store("https://a", "\"v2\"", body(2));
+
+        HttpCache.Entry entry = mCache.get("https://a");
+        assertEquals("\"v2\"", entry.getETag());
+        assertArrayEquals(body(2), read(mCache.openBody(entry)));
+    }
+
+    @Test
+    public void abortedEntryIsNotStored() throws IOException {
+        HttpCache.Editor editor = mCache.edit("https://a", "\"v1\"", null,
+                new ByteArrayInputStream(body(1)));
+        read(editor);
+        editor.abort();
+
+        assertNull(mCache.get("https://a"));
+        assertEquals(0, mDirectory.listFiles().length);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsDeletedAboveMaxBytes() throws IOException {
+        store("https://a", "\"a\"", body(1));
+        store("https://b", "\"b\"", body(2));
+        for (File file : mDirectory.listFiles()) file.setLastModified(1000);
+        // Use of the first entry makes the second one the oldest
+        assertNotNull(mCache.get("https://a"));
+
+        store("https://c", "\"c\"", body(3));
+
+        assertNotNull(mCache.get("https://a"));
+        assertNull(mCache.get("https://b"));
+        assertNotNull(mCache.get("https://c"));
+        assertEquals(4, mDirectory.listFiles().length);
+    }
+
+    private void store(String url, String eTag, byte[] body) throws IOException {
+        HttpCache.Editor editor = mCache.edit(url, eTag, null, new ByteArrayInputStream(body));
+        read(editor);
+        editor.commit();
+    }
+
+    private static byte[] body(int seed) {
+        byte[] body = new byte[BODY_SIZE];
+        Arrays.fill(body, (byte) seed);
+        return body;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try {
+            byte[] data = new byte[0];
+            byte[] buffer = new byte[256];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                data = Arrays.copyOf(data, data.length + read);
+                System.arraycopy(buffer, 0, data, data.length - read, read);
+            }
+            return data;
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Buckets and percentiles of {@link LatencyHistogram}
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramHasNoPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(-1, histogram.percentile(50));
+        assertEquals(-1, histogram.percentile(95));
+    }
+
+    @Test
+    public void valueOnABoundIsInItsBucket() {
+        assertEquals(1, single(0));
+        assertEquals(1, single(1));
+        assertEquals(2, single(2));
+        assertEquals(100, single(100));
+        assertEquals(60000, single(60000));
+    }
+
+    @Test
+    public void valueBetweenBoundsIsReportedAsTheUpperBound() {
+        assertEquals(5, single(3));
+        assertEquals(150, single(101));
+        assertEquals(2000, single(1999));
+    }
+
+    @Test
+    public void valueAboveTheHighestBoundIsUnbounded() {
+        assertEquals(Long.MAX_VALUE, single(60001));
+    }
+
+    @Test
+    public void percentilesFollowTheRanks() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 90 fast requests, 8 slower and 2 very slow ones
+        for (int i = 0; i < 90; i++) histogram.record(40);
+        for (int i = 0; i < 8; i++) histogram.record(400);
+        for (int i = 0; i < 2; i++) histogram.record(4000);
+
+        assertEquals(100, histogram.count());
+        assertEquals(50, histogram.percentile(50));
+        assertEquals(50, histogram.percentile(90));
+        assertEquals(500, histogram.percentile(95));
+        assertEquals(500, histogram.percentile(98));
+        assertEquals(5000, histogram.percentile(99));
+        assertEquals(5000, histogram.percentile(100));
+    }
+
+    private static long single(long millis) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(millis);
+        return histogram.percentile(50);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link LongHashSet} against a boxed HashSet
+ */
+public class LongHashSetTest {
+
+    @Test
+    public void addReportsNewIds() {
+        LongHashSet set = new LongHashSet();
+        assertTrue(set.add(42));
+        assertFalse(set.add(42));
+        assertTrue(set.contains(42));
+        assertFalse(set.contains(43));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void zeroAndNegativeIdsAreKept() {
+        LongHashSet set = new LongHashSet();
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.add(-1));
+        assertTrue(set.add(Long.MIN_VALUE));
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(-1));
+        assertTrue(set.contains(Long.MIN_VALUE));
+        assertEquals(3, set.size());
+    }
+
+    @Test
+    public void growingSetMatchesHashSet() {
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            // Narrow range, so some ids repeat
+            long id = random.nextInt(15000) * 0x10000L;
+            assertEquals(expected.add(id), set.add(id));
+        }
+        assertEquals(expected.size(), set.size());
+        for (long id = 0; id < 15000; id++) {
+            assertEquals(expected.contains(id * 0x10000L), set.contains(id * 0x10000L));
+        }
+    }
+
+    @Test
+    public void clearEmptiesTheSet() {
+        LongHashSet set = new LongHashSet();
+        for (long id = 0; id < 100; id++) set.add(id);
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.contains(0));
+        assertFalse(set.contains(50));
+        assertTrue(set.add(50));
+    }
+}
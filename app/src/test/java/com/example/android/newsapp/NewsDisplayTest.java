@@ -0,0 +1,95 @@
+package com.example.android.newsapp;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Allocations of the values a row bind reads, formatted per bind as before
+ * and taken from the prepared {@link NewsDisplay}.
+ * Category color lookup needs app resources and is left out of the measurement.
+ */
+public class NewsDisplayTest {
+
+    private static final int BINDS = 20000;
+
+    @Test
+    public void preparedDateMatchesFormattedDate() {
+        News news = news();
+        assertEquals(Utils.formattedDate(news.getmDate()), NewsDisplay.formattedDate(news));
+        assertEquals("12/07/2018 18:00", NewsDisplay.formattedDate(news));
+    }
+
+    @Test
+    public void epochDateMatchesFormattedDate() {
+        // Every hour over a few years, month and leap day edges included
+        for (long time = 1420070400000L; time < 1546300800000L; time += 3600 * 1000L + 61000L) {
+            News news = new News("Title", "", "https://www.theguardian.com/a/b",
+                    News.formatDate(time), "News", "");
+            assertEquals(Utils.formattedDate(news.getmDate()), NewsDisplay.formattedDate(news));
+        }
+    }
+
+    @Test
+    public void trailTextIsDecodedOnBind() {
+        News news = news();
+        assertTrue(news.hasTrailText());
+        assertEquals("Trail", news.getmTrailText());
+        News empty = new News("Title", "", "https://www.theguardian.com/a/b",
+                "2018-07-12T18:00:12Z", "News", "");
+        assertFalse(empty.hasTrailText());
+    }
+
+    @Test
+    public void preparedBindAllocatesLess() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+
+        News news = news();
+        news.setDisplay(new NewsDisplay(NewsDisplay.formattedDate(news), 0));
+
+        // Warm up both paths so class loading and JIT are not counted
+        for (int i = 0; i < BINDS; i++) {
+            bindFormatted(news);
+            bindPrepared(news);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long start = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < BINDS; i++) bindFormatted(news);
+        long formatted = allocations.getThreadAllocatedBytes(threadId) - start;
+
+        start = allocations.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < BINDS; i++) bindPrepared(news);
+        long prepared = allocations.getThreadAllocatedBytes(threadId) - start;
+
+        System.out.println("Bytes per bind: formatted " + formatted / BINDS
+                + ", prepared " + prepared / BINDS);
+        assertTrue(prepared * 10 < formatted);
+    }
+
+    private static int bindFormatted(News news) {
+        return Utils.formattedDate(news.getmDate()).length()
+                + news.getmTrailText().length();
+    }
+
+    private static int bindPrepared(News news) {
+        NewsDisplay display = news.getDisplay();
+        // Trail text is decoded on bind on both paths
+        return display.getDate().length() + display.getCategoryColor()
+                + news.getmTrailText().length();
+    }
+
+    private static News news() {
+        return new News("Liquid water lake revealed on Mars", "Trail",
+                "https://www.theguardian.com/science/2018/jul/12/mars-lake",
+                "2018-07-12T18:00:12Z", "Science", "Hannah Devlin");
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Consecutive page loads go over one kept-alive connection
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NewsHttpClientTest {
+
+    private MockWebServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void consecutivePagesReuseConnection() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mServer.enqueue(new MockResponse().setBody(Fixtures.string("search_page.json")));
+        }
+
+        for (int page = 1; page <= 3; page++) {
+            NewsPage result = Utils.makeHttpRequest(url(page), null, new RequestHandle());
+            assertEquals(6, result.getNews().size());
+        }
+
+        // Sequence number counts requests on the same connection
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, mServer.takeRequest().getSequenceNumber());
+        }
+        assertEquals(3, mServer.getRequestCount());
+    }
+
+    @Test
+    public void gzipPagesReuseConnection() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mServer.enqueue(new MockResponse()
+                    .setHeader("Content-Encoding", "gzip")
+                    .setBody(gzip(Fixtures.bytes("search_page.json"))));
+        }
+
+        for (int page = 1; page <= 2; page++) {
+            NewsPage result = Utils.makeHttpRequest(url(page), null, new RequestHandle());
+            assertEquals(6, result.getNews().size());
+            assertEquals(406, result.getTotalPages());
+        }
+
+        assertEquals("gzip", mServer.takeRequest().getHeader("Accept-Encoding"));
+        assertEquals(1, mServer.takeRequest().getSequenceNumber());
+    }
+
+    @Test
+    public void cancelledRequestIsNotSent() throws IOException {
+        RequestHandle handle = new RequestHandle();
+        handle.cancel();
+        try {
+            Utils.makeHttpRequest(url(1), null, handle);
+            fail();
+        } catch (IOException expected) {
+            assertEquals(0, mServer.getRequestCount());
+        }
+    }
+
+    private URL url(int page) {
+        return mServer.url("/search?page=" + page).url();
+    }
+
+    private static Buffer gzip(byte[] data) throws IOException {
+        Buffer buffer = new Buffer();
+        GZIPOutputStream out = new GZIPOutputStream(buffer.outputStream());
+        out.write(data);
+        out.close();
+        return buffer;
+    }
+}
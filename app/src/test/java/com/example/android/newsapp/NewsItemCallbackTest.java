@@ -0,0 +1,78 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Row identity of {@link NewsItemCallback} across a refresh of the list
+ */
+public class NewsItemCallbackTest {
+
+    private final NewsItemCallback mCallback = new NewsItemCallback();
+
+    @Test
+    public void equalNewsAreTheSameUnchangedItem() {
+        News old = news(1, "Mars lake found");
+        News refreshed = news(1, "Mars lake found");
+        assertTrue(mCallback.areItemsTheSame(old, refreshed));
+        assertTrue(mCallback.areContentsTheSame(old, refreshed));
+    }
+
+    @Test
+    public void changedNewsIsTheSameItemWithNewContent() {
+        News old = news(1, "Mars lake found");
+        News updated = news(1, "Mars lake found, scientists say");
+        assertTrue(mCallback.areItemsTheSame(old, updated));
+        assertFalse(mCallback.areContentsTheSame(old, updated));
+    }
+
+    @Test
+    public void otherNewsIsAnotherItem() {
+        assertFalse(mCallback.areItemsTheSame(news(1, "Same title"), news(2, "Same title")));
+    }
+
+    @Test
+    public void placeholdersAreTheSameOnlyAsPlaceholders() {
+        assertTrue(mCallback.areItemsTheSame(null, null));
+        assertTrue(mCallback.areContentsTheSame(null, null));
+        assertFalse(mCallback.areItemsTheSame(null, news(1, "Mars lake found")));
+        assertFalse(mCallback.areItemsTheSame(news(1, "Mars lake found"), null));
+    }
+
+    @Test
+    public void movedNewsKeepsItsIdAcrossRefresh() {
+        List<News> before = Arrays.asList(news(1, "First"), news(2, "Second"), news(3, "Third"));
+        // Refreshed page has new objects, a news published on top moved the rows down
+        List<News> after = Arrays.asList(news(4, "Newest"), news(1, "First"),
+                news(2, "Second"), news(3, "Third"));
+
+        for (int i = 0; i < before.size(); i++) {
+            News old = before.get(i);
+            News moved = after.get(i + 1);
+            assertEquals(NewsItemCallback.itemId(old, i), NewsItemCallback.itemId(moved, i + 1));
+            assertTrue(mCallback.areItemsTheSame(old, moved));
+            assertTrue(mCallback.areContentsTheSame(old, moved));
+        }
+        assertNotEquals(NewsItemCallback.itemId(before.get(0), 0),
+                NewsItemCallback.itemId(after.get(0), 0));
+    }
+
+    @Test
+    public void placeholderIdsDontCollideWithNews() {
+        assertNotEquals(NewsItemCallback.itemId(null, 0), NewsItemCallback.itemId(null, 1));
+        assertTrue(NewsItemCallback.itemId(null, 0) < 0);
+    }
+
+    private static News news(int index, String title) {
+        return new News(title, "Trail text",
+                "https://www.theguardian.com/science/2018/jul/12/story-" + index,
+                "2018-07-12T18:00:12Z", "Science", "Correspondent");
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Streaming parser gives the same news as the JSONObject parser it replaced.
+ * Runs on Robolectric for JsonReader, Html and org.json.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NewsJsonParserTest {
+
+    @Test
+    public void sameNewsAsTreeParser() throws IOException {
+        List<News> expected = Utils.extractNews(Fixtures.string("search_page.json"));
+        List<News> actual = parse("search_page.json", new NewsJsonParser());
+
+        assertEquals(6, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            News want = expected.get(i);
+            News got = actual.get(i);
+            assertEquals(want.getmTitle(), got.getmTitle());
+            assertEquals(want.getmTrailText(), got.getmTrailText());
+            assertEquals(want.getmUrl(), got.getmUrl());
+            assertEquals(want.getmDate(), got.getmDate());
+            assertEquals(want.getPublishedAt(), got.getPublishedAt());
+            assertEquals(want.getmCategory(), got.getmCategory());
+            assertEquals(want.getmAuthor(), got.getmAuthor());
+        }
+    }
+
+    @Test
+    public void decodesHtmlAndOptionalFields() throws IOException {
+        List<News> news = parse("search_page.json", new NewsJsonParser());
+
+        assertEquals("Liquid water 'lake' revealed on Mars", news.get(0).getmTitle());
+        assertEquals("Researchers say the discovery of a 20km-wide lake raises the prospect of life",
+                news.get(0).getmTrailText());
+        assertEquals("https://media.guim.co.uk/a1/500.jpg", news.get(0).getThumbnail());
+        assertEquals("Nato summit: Trump & Merkel meet in Brussels – live", news.get(1).getmTitle());
+        // Missing byline and null thumbnail
+        assertEquals("", news.get(2).getmAuthor());
+        assertNull(news.get(2).getThumbnail());
+        assertEquals("Mandžukić’s extra-time goal sends Croatia to their first final",
+                news.get(2).getmTrailText());
+        // Missing trail text and publication date
+        assertEquals("", news.get(3).getmTrailText());
+        assertEquals("", news.get(5).getmDate());
+    }
+
+    @Test
+    public void readsTotalPages() throws IOException {
+        NewsJsonParser parser = new NewsJsonParser();
+        parse("search_page.json", parser);
+        assertEquals(406, parser.getTotalPages());
+    }
+
+    @Test
+    public void errorStatusGivesNoNews() throws IOException {
+        NewsJsonParser parser = new NewsJsonParser();
+        assertTrue(parse("error_page.json", parser).isEmpty());
+        assertEquals(0, parser.getTotalPages());
+        assertTrue(Utils.extractNews(Fixtures.string("error_page.json")).isEmpty());
+    }
+
+    private static List<News> parse(String fixture, NewsJsonParser parser) throws IOException {
+        return parser.parse(new ByteArrayInputStream(Fixtures.bytes(fixture)));
+    }
+}
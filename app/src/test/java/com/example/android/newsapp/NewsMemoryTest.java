@@ -0,0 +1,177 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Heap kept by 10k articles, compact {@link News} with the {@link NewsDisplay} the
+ * adapter binds against six plain String fields.
+ * <p>
+ * Sizes are counted from the reachable objects with the layout of a 64-bit JVM with
+ * compressed references: 12-byte object header, 16-byte array header, 4-byte
+ * references, objects aligned to 8 bytes. Objects shared by articles, e.g. pooled
+ * sections, are counted once.
+ */
+public class NewsMemoryTest {
+
+    private static final int ARTICLES = 10000;
+    private static final String[] SECTIONS = {"World news", "Science", "Football", "Business",
+            "Technology", "Opinion", "Sport", "Music"};
+
+    /**
+     * Article as it was stored before, every value in its own String
+     */
+    private static class PlainNews {
+        final String mTitle, mTrailText, mUrl, mDate, mCategory, mAuthor;
+
+        PlainNews(String title, String trailText, String url, String date, String category,
+                  String author) {
+            mTitle = title;
+            mTrailText = trailText;
+            mUrl = url;
+            mDate = date;
+            mCategory = category;
+            mAuthor = author;
+        }
+    }
+
+    @Test
+    public void compactNewsUsesLessHeap() {
+        List<PlainNews> plain = new ArrayList<>(ARTICLES);
+        for (int i = 0; i < ARTICLES; i++) {
+            plain.add(new PlainNews(title(i), trailText(i), url(i), date(i),
+                    new String(section(i)), author(i)));
+        }
+        long plainBytes = deepSize(plain) / ARTICLES;
+
+        List<News> compact = new ArrayList<>(ARTICLES);
+        for (int i = 0; i < ARTICLES; i++) {
+            News news = new News(title(i), trailText(i), url(i), date(i),
+                    new String(section(i)), author(i));
+            // Display values are kept with every loaded article, color needs no resources
+            news.setDisplay(new NewsDisplay(NewsDisplay.formattedDate(news), 0));
+            compact.add(news);
+        }
+        long compactBytes = deepSize(compact) / ARTICLES;
+
+        System.out.println("Bytes per article: plain " + plainBytes
+                + ", compact with display " + compactBytes);
+        assertTrue(compactBytes < plainBytes);
+    }
+
+    @Test
+    public void compactNewsKeepsValues() {
+        for (int i = 0; i < 100; i++) {
+            News news = new News(title(i), trailText(i), url(i), date(i), section(i), author(i));
+            assertEquals(trailText(i), news.getmTrailText());
+            assertEquals(url(i), news.getmUrl());
+            assertEquals(date(i), news.getmDate());
+            assertEquals(section(i), news.getmCategory());
+            assertEquals(author(i), news.getmAuthor());
+        }
+    }
+
+    @Test
+    public void stringPoolSharesValuesWithinItsBound() {
+        StringPool pool = new StringPool(4);
+        String first = pool.get(new String("World news"));
+        assertSame(first, pool.get(new String("World news")));
+
+        for (int i = 0; i < 10; i++) pool.get("value " + i);
+        assertTrue(pool.size() <= 4);
+    }
+
+    /**
+     * Bytes of the objects reachable from the list elements through instance fields
+     */
+    private static long deepSize(List<?> roots) {
+        Map<Object, Boolean> seen = new IdentityHashMap<>();
+        Deque<Object> pending = new ArrayDeque<>(roots);
+        long size = 0;
+        while (!pending.isEmpty()) {
+            Object object = pending.pop();
+            if (seen.put(object, Boolean.TRUE) != null) continue;
+            Class<?> type = object.getClass();
+            if (type.isArray()) {
+                int length = Array.getLength(object);
+                Class<?> component = type.getComponentType();
+                size += align(16 + (long) length * fieldSize(component));
+                if (!component.isPrimitive()) {
+                    for (int i = 0; i < length; i++) {
+                        Object element = Array.get(object, i);
+                        if (element != null) pending.push(element);
+                    }
+                }
+                continue;
+            }
+            long shallow = 12;
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) continue;
+                    shallow += fieldSize(field.getType());
+                    if (field.getType().isPrimitive()) continue;
+                    field.setAccessible(true);
+                    try {
+                        Object value = field.get(object);
+                        if (value != null) pending.push(value);
+                    } catch (IllegalAccessException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            }
+            size += align(shallow);
+        }
+        return size;
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class) return 4;
+        if (type == short.class || type == char.class) return 2;
+        if (type == byte.class || type == boolean.class) return 1;
+        return 4;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private static String section(int i) {
+        return SECTIONS[i % SECTIONS.length];
+    }
+
+    private static String title(int i) {
+        return "Headline number " + i + " of the simulated feed";
+    }
+
+    private static String trailText(int i) {
+        return "Trail text of the article " + i + ", a sentence or two about what happened";
+    }
+
+    private static String url(int i) {
+        // A few articles share a day of a section
+        return "https://www.theguardian.com/" + section(i).toLowerCase().replace(' ', '-')
+                + "/2018/jul/" + (10 + i / 400 % 20) + "/article-slug-" + i;
+    }
+
+    private static String date(int i) {
+        return News.formatDate(1531400000000L - i * 60000L);
+    }
+
+    private static String author(int i) {
+        return new String("Correspondent " + i % 150);
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Eviction and reload of pages in {@link NewsPageWindow}
+ */
+public class NewsPageWindowTest {
+
+    private static final int PAGE_SIZE = 4;
+
+    @Test
+    public void evictedPageIsRestoredById() {
+        NewsPageWindow window = windowOfPages(3);
+        assertEquals(Collections.<Integer>emptyList(), window.onVisibleRange(8, 11));
+        assertNull(window.snapshot().get(0));
+
+        assertEquals(Arrays.asList(1), window.onVisibleRange(0, 3));
+        List<News> reloaded = page(1);
+        Collections.reverse(reloaded);
+        window.restorePage(1, reloaded);
+
+        List<News> rows = window.snapshot();
+        for (int i = 0; i < PAGE_SIZE; i++) assertEquals(title(i), rows.get(i).getmTitle());
+    }
+
+    @Test
+    public void missingRowsStayReloadable() {
+        NewsPageWindow window = windowOfPages(3);
+        window.onVisibleRange(8, 11);
+        assertEquals(Arrays.asList(1), window.onVisibleRange(0, 3));
+
+        // Reloaded page lost a row, e.g. the feed moved it to the next page
+        List<News> reloaded = page(1);
+        News moved = reloaded.remove(2);
+        window.restorePage(1, reloaded);
+        assertNull(window.snapshot().get(2));
+
+        assertEquals(Arrays.asList(1), window.onVisibleRange(0, 3));
+        window.restorePage(1, Collections.singletonList(moved));
+        List<News> rows = window.snapshot();
+        assertSame(moved, rows.get(2));
+        // Rows found by the first reload are kept
+        assertEquals(title(0), rows.get(0).getmTitle());
+        assertEquals(Collections.<Integer>emptyList(), window.onVisibleRange(0, 3));
+    }
+
+    @Test
+    public void missingRowIsFoundInTheNeighbourPage() {
+        NewsPageWindow window = windowOfPages(3);
+        window.onVisibleRange(8, 11);
+        assertEquals(Arrays.asList(1, 2), window.onVisibleRange(0, 7));
+
+        List<News> first = page(1);
+        News moved = first.remove(3);
+        window.restorePage(1, first);
+        List<News> second = page(2);
+        second.add(0, moved);
+        window.restorePage(2, second);
+
+        assertSame(moved, window.snapshot().get(3));
+    }
+
+    @Test
+    public void rowGoneFromTheFeedStopsReloadingItsPage() {
+        NewsPageWindow window = windowOfPages(3);
+        window.onVisibleRange(8, 11);
+        List<News> reloaded = page(1);
+        reloaded.remove(0);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Arrays.asList(1), window.onVisibleRange(0, 3));
+            window.restorePage(1, reloaded);
+        }
+        assertEquals(Collections.<Integer>emptyList(), window.onVisibleRange(0, 3));
+        assertNull(window.snapshot().get(0));
+        assertEquals(3 * PAGE_SIZE, window.size());
+    }
+
+    @Test
+    public void failedReloadIsRetried() {
+        NewsPageWindow window = windowOfPages(3);
+        window.onVisibleRange(8, 11);
+        assertEquals(Arrays.asList(1), window.onVisibleRange(0, 3));
+        window.restorePage(1, null);
+        assertEquals(Arrays.asList(1), window.onVisibleRange(0, 3));
+    }
+
+    @Test
+    public void refreshedNewsArePrependedWithoutDuplicates() {
+        NewsPageWindow window = windowOfPages(3);
+        // Response starts at the day of the newest row: two new stories, the loaded
+        // ones and an older story of that day the list never had
+        List<News> response = Arrays.asList(story(-2), story(-1), story(-1), story(0),
+                story(1), story(100));
+
+        List<News> prepended = window.prependNewer(response, 50);
+
+        assertEquals(2, prepended.size());
+        List<News> rows = window.snapshot();
+        assertEquals(3 * PAGE_SIZE + 2, rows.size());
+        assertEquals(title(-2), rows.get(0).getmTitle());
+        assertEquals(title(-1), rows.get(1).getmTitle());
+        assertEquals(title(0), rows.get(2).getmTitle());
+        assertEquals(story(-2).getPublishedAt(), window.getNewestPublishedAt());
+    }
+
+    @Test
+    public void olderNewsOfTheDayAreNotPrepended() {
+        NewsPageWindow window = windowOfPages(1);
+        List<News> prepended = window.prependNewer(
+                Arrays.asList(story(0), story(50), story(51)), 3);
+
+        assertEquals(Collections.<News>emptyList(), prepended);
+        assertEquals(PAGE_SIZE, window.size());
+    }
+
+    @Test
+    public void fullResponseOfNewNewsNeedsReload() {
+        NewsPageWindow window = windowOfPages(1);
+        List<News> response = Arrays.asList(story(-3), story(-2), story(-1));
+
+        // More new stories than one request returns, the gap can't be closed
+        assertNull(window.prependNewer(response, 3));
+        assertEquals(PAGE_SIZE, window.size());
+
+        // One story short of the request size, all new stories are here
+        assertEquals(3, window.prependNewer(response, 4).size());
+        assertEquals(PAGE_SIZE + 3, window.size());
+    }
+
+    @Test
+    public void prependedNewsShiftPagesBelow() {
+        NewsPageWindow window = windowOfPages(3);
+        window.onVisibleRange(8, 11);
+        window.prependNewer(Arrays.asList(story(-2), story(-1)), 50);
+
+        List<News> rows = window.snapshot();
+        assertEquals(title(-2), rows.get(0).getmTitle());
+        for (int i = 2; i < 2 + 2 * PAGE_SIZE; i++) assertNull(rows.get(i));
+        assertEquals(title(2 * PAGE_SIZE), rows.get(2 + 2 * PAGE_SIZE).getmTitle());
+
+        // First page starts two rows lower
+        assertEquals(Arrays.asList(1), window.onVisibleRange(2, 5));
+        window.restorePage(1, page(1));
+        rows = window.snapshot();
+        for (int i = 0; i < PAGE_SIZE; i++) assertEquals(title(i), rows.get(2 + i).getmTitle());
+
+        // Prepended rows belong to no page, they are never evicted
+        assertEquals(Arrays.asList(3), window.onVisibleRange(10, 13));
+        assertEquals(title(-1), window.snapshot().get(1).getmTitle());
+    }
+
+    /**
+     * Window which keeps no pages next to the visible ones
+     */
+    private static NewsPageWindow windowOfPages(int pages) {
+        NewsPageWindow window = new NewsPageWindow(0);
+        for (int page = 1; page <= pages; page++) window.addPage(page, page(page));
+        return window;
+    }
+
+    private static List<News> page(int page) {
+        List<News> news = new ArrayList<>();
+        for (int i = (page - 1) * PAGE_SIZE; i < page * PAGE_SIZE; i++) news.add(story(i));
+        return news;
+    }
+
+    /**
+     * @param index - stories are a minute apart, lower index is newer
+     */
+    private static News story(int index) {
+        return new News(title(index), "Trail text " + index,
+                "https://www.theguardian.com/world/2018/jul/12/story-" + index,
+                News.formatDate(1531400000000L - index * 60000L), "World news", "Correspondent");
+    }
+
+    private static String title(int index) {
+        return "Story " + index;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Query building of {@link NewsSearchIndex} and search of news indexed in the background
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NewsSearchIndexTest {
+
+    private final NewsSearchIndex mIndex = NewsSearchIndex.getInstance(RuntimeEnvironment.application);
+
+    @After
+    public void tearDown() throws InterruptedException {
+        // Shared index is opened again by the next test
+        NewsSearchIndex.awaitIndexed();
+        mIndex.close();
+    }
+
+    @Test
+    public void wordsAreMatchedAsPrefixes() {
+        assertEquals("mars* water*", NewsSearchIndex.matchExpression("Mars  water"));
+    }
+
+    @Test
+    public void quotedTextIsMatchedAsPhrase() {
+        assertEquals("\"liquid water\" mars*",
+                NewsSearchIndex.matchExpression("\"Liquid water\" Mars"));
+        // Unclosed quote is a phrase till the end
+        assertEquals("nato* \"trump merkel\"",
+                NewsSearchIndex.matchExpression("nato \"trump merkel"));
+    }
+
+    @Test
+    public void querySyntaxIsDropped() {
+        // Operators are lowercased into plain words
+        assertEquals("a* or* b*", NewsSearchIndex.matchExpression("a* OR-b"));
+        assertEquals("", NewsSearchIndex.matchExpression("*()-"));
+        assertEquals("", NewsSearchIndex.matchExpression(null));
+    }
+
+    @Test
+    public void newsIndexedLaterAreFound() throws InterruptedException {
+        List<News> news = Arrays.asList(
+                news("Quasar lake revealed on Europa", "Science", 2),
+                news("Summit: Zelenka and Okoro meet", "World news", 1));
+        mIndex.indexLater(news);
+        NewsSearchIndex.awaitIndexed();
+
+        List<News> found = mIndex.search("qua", 10);
+        assertEquals(1, found.size());
+        assertEquals("Quasar lake revealed on Europa", found.get(0).getmTitle());
+        assertEquals(1, mIndex.search("okoro zelenka", 10).size());
+
+        // Newest first
+        found = mIndex.search("xyzzy", 10);
+        assertEquals(2, found.size());
+        assertEquals("Summit: Zelenka and Okoro meet", found.get(0).getmTitle());
+    }
+
+    private static News news(String title, String section, int minutesAgo) {
+        String slug = title.toLowerCase().replace(' ', '-').replace(":", "");
+        return new News(title, "Xyzzy trail text of " + title, "https://www.theguardian.com/" + slug,
+                News.formatDate(1531400000000L - minutesAgo * 60000L), section, "Correspondent");
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class NewsStoreTest {
+
+    private FakeClock mClock;
+    private NewsStore mStore;
+
+    @Before
+    public void setUp() {
+        mClock = new FakeClock(1531400000000L);
+        mStore = new NewsStore(RuntimeEnvironment.application, null,
+                TimeUnit.MINUTES.toMillis(10), 25, mClock);
+    }
+
+    @After
+    public void tearDown() {
+        mStore.close();
+    }
+
+    @Test
+    public void storedPageReadsBack() {
+        List<News> news = page("science", 1, 10);
+        mStore.putPage("science", 1, 40, news);
+
+        NewsStore.CachedPage cached = mStore.getPage("science", 1);
+        assertNotNull(cached);
+        assertEquals(40, cached.getTotalPages());
+        assertEquals(news.size(), cached.getNews().size());
+        for (int i = 0; i < news.size(); i++) {
+            assertEquals(news.get(i).getmUrl(), cached.getNews().get(i).getmUrl());
+            assertEquals(news.get(i).getmTitle(), cached.getNews().get(i).getmTitle());
+            assertEquals(news.get(i).getThumbnail(), cached.getNews().get(i).getThumbnail());
+        }
+        assertFalse(mStore.isStale(cached));
+        assertTrue(cached.isFromStore());
+        assertFalse(cached.isStale());
+        assertNull(mStore.getPage("science", 2));
+    }
+
+    @Test
+    public void pageReadPastTtlIsStale() {
+        mStore.putPage("science", 1, 40, page("science", 1, 10));
+        mClock.advance(TimeUnit.MINUTES.toMillis(10) + 1);
+        assertTrue(mStore.getPage("science", 1).isStale());
+    }
+
+    @Test
+    public void oldestPagesAreEvictedAboveMaxArticles() {
+        for (int page = 1; page <= 3; page++) {
+            mStore.putPage("science", page, 3, page("science", page, 10));
+            // Pages are evicted in order of their fetch time
+            mClock.advance(1000);
+        }
+
+        assertNull(mStore.getPage("science", 1));
+        assertNotNull(mStore.getPage("science", 2));
+        assertNotNull(mStore.getPage("science", 3));
+    }
+
+    @Test
+    public void newerNewsGoOnTopOfStoredFirstPage() {
+        List<News> stored = page("science", 1, 10);
+        mStore.putPage("science", 1, 40, stored);
+        mClock.advance(TimeUnit.MINUTES.toMillis(10) + 1);
+
+        // Refresh of the day returns the newest stored news again
+        List<News> newer = page("science", 0, 3);
+        newer.addAll(stored.subList(0, 2));
+        mStore.putNewerNews("science", newer);
+
+        NewsStore.CachedPage cached = mStore.getPage("science", 1);
+        assertEquals(40, cached.getTotalPages());
+        assertEquals(10, cached.getNews().size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(newer.get(i).getmUrl(), cached.getNews().get(i).getmUrl());
+        }
+        for (int i = 3; i < 10; i++) {
+            assertEquals(stored.get(i - 3).getmUrl(), cached.getNews().get(i).getmUrl());
+        }
+        assertFalse(cached.isStale());
+    }
+
+    @Test
+    public void newerNewsNeedStoredFirstPage() {
+        mStore.putNewerNews("science", page("science", 0, 3));
+        assertNull(mStore.getPage("science", 1));
+    }
+
+    static List<News> page(String section, int page, int size) {
+        List<News> news = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            String id = section + "/" + page + "/" + i;
+            news.add(new News("Title " + id, "Trail " + id,
+                    "https://www.theguardian.com/" + id, "2018-07-12T10:00:00Z",
+                    section, "Author", i % 2 == 0 ? null : "https://media.guim.co.uk/" + id));
+        }
+        return news;
+    }
+}
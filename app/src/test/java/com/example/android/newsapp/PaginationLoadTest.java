@@ -0,0 +1,303 @@
+package com.example.android.newsapp;
+
+import android.net.Uri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ServerSocketFactory;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Load test of pagination against a local mock API: flings through every page of a
+ * synthetic feed the way the list does, store or network, parse, cursor and row
+ * dates, and reports pages per second, time per page, heap growth and GC.
+ * <p>
+ * Network of the mock is set per run: latency of the headers, bandwidth of the body
+ * and every n-th request failing with 503, which is retried.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PaginationLoadTest {
+
+    private static final String SECTION = "loadtest";
+    private static final int PAGE_SIZE = FetchPolicy.DEFAULT_PAGE_SIZE;
+    private static final int PAGES = 40;
+    // Newest news of the feed, 2018-07-12T12:53:20Z
+    private static final long NEWEST = 1531400000000L;
+    private static final String[] SECTIONS = {"World news", "Science", "Football", "Business",
+            "Technology", "Opinion", "Sport", "Music"};
+
+    private MockWebServer mServer;
+    private NewsStore mStore;
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private volatile long mLatencyMillis;
+    private volatile long mBytesPerSecond;
+    private volatile int mErrorEvery;
+    // Fetches of the same url are shared for a while, every run asks for new urls
+    private int mRound;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                int count = mRequests.incrementAndGet();
+                if (mErrorEvery > 0 && count % mErrorEvery == 0) {
+                    return new MockResponse().setResponseCode(503);
+                }
+                if (mLatencyMillis > 0) {
+                    // Headers delay of the mock is not applied, the dispatcher waits instead
+                    try {
+                        Thread.sleep(mLatencyMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                int page = Integer.parseInt(Uri.parse(request.getPath()).getQueryParameter("page"));
+                MockResponse response = new MockResponse().setBody(page(page));
+                if (mBytesPerSecond > 0) {
+                    // Chunks of a tenth of a second
+                    response.throttleBody(mBytesPerSecond / 10, 100, TimeUnit.MILLISECONDS);
+                }
+                return response;
+            }
+        });
+        mServer.setServerSocketFactory(new NoDelayServerSocketFactory());
+        mServer.start();
+
+        mStore = new NewsStore(RuntimeEnvironment.application, null,
+                TimeUnit.MINUTES.toMillis(10), PAGES * PAGE_SIZE, new FakeClock(NEWEST));
+        NewsStore.setInstance(mStore);
+    }
+
+    @After
+    public void tearDown() throws IOException, InterruptedException {
+        NewsStore.setInstance(null);
+        mStore.close();
+        // Shared index is opened again by the next test
+        NewsSearchIndex.awaitIndexed();
+        NewsSearchIndex.getInstance(RuntimeEnvironment.application).close();
+        mServer.shutdown();
+    }
+
+    @Test
+    public void flingOverLocalNetwork() {
+        report("local", fling());
+    }
+
+    @Test
+    public void flingOverSlowNetwork() {
+        // About a 3G connection: 100 ms to first byte, 200 KB/s
+        mLatencyMillis = 100;
+        mBytesPerSecond = 200 * 1024;
+        report("slow", fling());
+    }
+
+    @Test
+    public void flingOverFlakyNetwork() {
+        mErrorEvery = 10;
+        Result result = fling();
+        report("flaky", result);
+        assertEquals(PAGES + PAGES / (mErrorEvery - 1), result.mRequests);
+    }
+
+    @Test
+    public void secondFlingIsServedFromStore() {
+        fling();
+        mRequests.set(0);
+        Result result = fling(false);
+        report("store", result);
+        assertEquals(0, result.mRequests);
+    }
+
+    /**
+     * Server sockets of the mock send without Nagle's delay, which otherwise holds
+     * every response on loopback for about 40 ms
+     */
+    private static class NoDelayServerSocketFactory extends ServerSocketFactory {
+
+        @Override
+        public ServerSocket createServerSocket() throws IOException {
+            return new ServerSocket() {
+                @Override
+                public Socket accept() throws IOException {
+                    Socket socket = super.accept();
+                    socket.setTcpNoDelay(true);
+                    return socket;
+                }
+            };
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port) throws IOException {
+            ServerSocket socket = createServerSocket();
+            socket.bind(new InetSocketAddress(port));
+            return socket;
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog) throws IOException {
+            ServerSocket socket = createServerSocket();
+            socket.bind(new InetSocketAddress(port), backlog);
+            return socket;
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog, InetAddress address)
+                throws IOException {
+            ServerSocket socket = createServerSocket();
+            socket.bind(new InetSocketAddress(address, port), backlog);
+            return socket;
+        }
+    }
+
+    /**
+     * Numbers of one fling
+     */
+    private static class Result {
+        int mPages;
+        int mRows;
+        int mRequests;
+        long mNanos;
+        long mHeapGrowth;
+        long mGcCount;
+        long mGcMillis;
+    }
+
+    private Result fling() {
+        mRound++;
+        return fling(true);
+    }
+
+    /**
+     * Load pages as the list asks for them, until the last page of the feed
+     *
+     * @param online - if false pages come from the store only
+     */
+    private Result fling(boolean online) {
+        mRequests.set(0);
+        FeedCursor cursor = new FeedCursor(PAGE_SIZE);
+        List<News> rows = new ArrayList<>();
+        Result result = new Result();
+
+        long heapBefore = usedHeap();
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long start = System.nanoTime();
+
+        for (int page = cursor.nextPage(); page <= PAGES; page = cursor.nextPage()) {
+            NewsPage loaded = FeedRepository.loadNewsPage(RuntimeEnvironment.application,
+                    url(page), SECTION, page, online, false);
+            if (loaded == null || loaded.getNews().isEmpty()) break;
+            List<News> accepted = cursor.accept(page, loaded.getNews());
+            // Row dates are formatted when the page is prepared for binding
+            for (News news : accepted) NewsDisplay.formattedDate(news);
+            rows.addAll(accepted);
+            result.mPages++;
+        }
+
+        result.mNanos = System.nanoTime() - start;
+        result.mGcCount = gcCount() - gcCountBefore;
+        result.mGcMillis = gcMillis() - gcMillisBefore;
+        // Rows stay reachable until the heap is measured
+        result.mRows = rows.size();
+        result.mHeapGrowth = usedHeap() - heapBefore;
+        result.mRequests = mRequests.get();
+
+        assertEquals(PAGES, result.mPages);
+        assertEquals(PAGES * PAGE_SIZE, result.mRows);
+        return result;
+    }
+
+    private static void report(String network, Result result) {
+        double seconds = result.mNanos / 1e9;
+        System.out.println(String.format(Locale.US,
+                "%s: %d pages, %d rows, %d requests in %.2f s, %.1f pages/s, %.2f ms/page, "
+                        + "heap +%d KB, %d GCs in %d ms",
+                network, result.mPages, result.mRows, result.mRequests, seconds,
+                result.mPages / seconds, result.mNanos / 1e6 / result.mPages,
+                result.mHeapGrowth / 1024, result.mGcCount, result.mGcMillis));
+    }
+
+    private String url(int page) {
+        return mServer.url("/search?section=" + SECTION + "&page=" + page
+                + "&page-size=" + PAGE_SIZE + "&round=" + mRound).toString();
+    }
+
+    /**
+     * @return response body of a page of the synthetic feed
+     */
+    private static String page(int page) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"response\":{\"status\":\"ok\",\"total\":").append(PAGES * PAGE_SIZE)
+                .append(",\"pageSize\":").append(PAGE_SIZE)
+                .append(",\"currentPage\":").append(page)
+                .append(",\"pages\":").append(PAGES)
+                .append(",\"orderBy\":\"newest\",\"results\":[");
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            int index = (page - 1) * PAGE_SIZE + i;
+            String section = SECTIONS[index % SECTIONS.length];
+            String path = section.toLowerCase().replace(' ', '-') + "/2018/jul/12/story-" + index;
+            if (i > 0) json.append(',');
+            json.append("{\"id\":\"").append(path)
+                    .append("\",\"type\":\"article\",\"sectionName\":\"").append(section)
+                    .append("\",\"webPublicationDate\":\"")
+                    .append(News.formatDate(NEWEST - index * 7L * 60 * 1000))
+                    .append("\",\"webTitle\":\"Story ").append(index)
+                    .append(": what&#39;s behind the latest headline\"")
+                    .append(",\"webUrl\":\"https://www.theguardian.com/").append(path)
+                    .append("\",\"fields\":{\"trailText\":\"<strong>Update:</strong> story ")
+                    .append(index).append(" &ndash; what happened and why it matters\"")
+                    .append(",\"byline\":\"Correspondent ").append(index % 150)
+                    .append("\"}}");
+        }
+        json.append("]}}");
+        return json.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+}
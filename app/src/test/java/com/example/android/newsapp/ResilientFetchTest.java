@@ -0,0 +1,137 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Retries and hedges of {@link ResilientFetch} against stubbed failures of a mock API
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ResilientFetchTest {
+
+    private MockWebServer mServer;
+    private String mBody;
+    private final AtomicInteger mRequests = new AtomicInteger();
+    // Responses of the first requests, later requests get the page
+    private volatile MockResponse[] mFirst = new MockResponse[0];
+    // Stall of the first response before its headers
+    private volatile long mFirstDelayMillis;
+    // Path of the url, the hedge delay is measured per url
+    private int mPath;
+
+    @Before
+    public void setUp() throws IOException {
+        mBody = Fixtures.string("search_page.json");
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                int index = mRequests.getAndIncrement();
+                if (index == 0 && mFirstDelayMillis > 0) {
+                    try {
+                        Thread.sleep(mFirstDelayMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (index < mFirst.length) return mFirst[index];
+                return new MockResponse().setBody(mBody);
+            }
+        });
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void serverErrorIsRetried() {
+        mFirst = new MockResponse[]{new MockResponse().setResponseCode(503)};
+        NewsPage page = fetch(new RequestHandle());
+        assertNotNull(page);
+        assertEquals(6, page.getNews().size());
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void clientErrorIsNotRetried() {
+        mFirst = new MockResponse[]{new MockResponse().setResponseCode(404)};
+        assertNull(fetch(new RequestHandle()));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void malformedBodyIsNotRetried() {
+        mFirst = new MockResponse[]{new MockResponse().setBody("{\"response\":{\"status\" 1}}")};
+        assertNull(fetch(new RequestHandle()));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void truncatedBodyIsNotRetried() {
+        mFirst = new MockResponse[]{new MockResponse().setBody(mBody.substring(0, mBody.length() / 2))};
+        assertNull(fetch(new RequestHandle()));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void slowRequestIsHedged() {
+        // First response stalls well past the default hedge delay of 2 s
+        mFirstDelayMillis = 6000;
+        long start = System.currentTimeMillis();
+        NewsPage page = fetch(new RequestHandle());
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertNotNull(page);
+        assertEquals(6, page.getNews().size());
+        assertEquals(2, mServer.getRequestCount());
+        assertTrue("Hedge won after " + elapsed + " ms", elapsed < 5000);
+    }
+
+    @Test
+    public void cancelWakesBackoff() throws InterruptedException {
+        final RequestHandle handle = new RequestHandle();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ignored) {
+                }
+                handle.cancel();
+            }
+        }).start();
+
+        long start = System.currentTimeMillis();
+        assertTrue(handle.await(10000));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    private NewsPage fetch(RequestHandle handle) {
+        try {
+            return ResilientFetch.fetch(new URL(mServer.url("/search/" + ++mPath).toString()),
+                    null, handle);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
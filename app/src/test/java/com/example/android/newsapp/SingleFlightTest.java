@@ -0,0 +1,122 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Shared calls of {@link SingleFlight} and cancellation of their callers
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SingleFlightTest {
+
+    private final SingleFlight<String> mFlight = new SingleFlight<>(0);
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+
+    /**
+     * Call blocked until released, returns null when its handle is cancelled
+     */
+    private static class BlockingCall implements SingleFlight.Call<String> {
+        final CountDownLatch mStarted = new CountDownLatch(1);
+        final CountDownLatch mRelease = new CountDownLatch(1);
+        final AtomicInteger mCalls = new AtomicInteger();
+        volatile RequestHandle mHandle;
+
+        @Override
+        public String call(RequestHandle handle) throws Exception {
+            mCalls.incrementAndGet();
+            mHandle = handle;
+            mStarted.countDown();
+            mRelease.await(5, TimeUnit.SECONDS);
+            return handle.isCancelled() ? null : "page";
+        }
+    }
+
+    @Test
+    public void followerGetsResultWhenLeaderIsCancelled() throws Exception {
+        BlockingCall call = new BlockingCall();
+        RequestHandle leader = new RequestHandle();
+        RequestHandle follower = new RequestHandle();
+
+        Future<String> leading = execute(leader, call);
+        assertTrue(call.mStarted.await(5, TimeUnit.SECONDS));
+        Future<String> following = execute(follower, call);
+        awaitShared(1);
+
+        leader.cancel();
+        assertFalse(call.mHandle.isCancelled());
+        call.mRelease.countDown();
+
+        assertEquals("page", following.get(5, TimeUnit.SECONDS));
+        assertEquals("page", leading.get(5, TimeUnit.SECONDS));
+        assertEquals(1, call.mCalls.get());
+    }
+
+    @Test
+    public void sharedCallIsCancelledWhenEveryCallerLeft() throws Exception {
+        BlockingCall call = new BlockingCall();
+        RequestHandle leader = new RequestHandle();
+        RequestHandle follower = new RequestHandle();
+
+        Future<String> leading = execute(leader, call);
+        assertTrue(call.mStarted.await(5, TimeUnit.SECONDS));
+        Future<String> following = execute(follower, call);
+        awaitShared(1);
+
+        leader.cancel();
+        follower.cancel();
+        assertTrue(call.mHandle.isCancelled());
+        call.mRelease.countDown();
+
+        assertNull(leading.get(5, TimeUnit.SECONDS));
+        assertNull(following.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void callerAfterCancellationStartsNewCall() throws Exception {
+        BlockingCall cancelled = new BlockingCall();
+        RequestHandle leader = new RequestHandle();
+        Future<String> leading = execute(leader, cancelled);
+        assertTrue(cancelled.mStarted.await(5, TimeUnit.SECONDS));
+        leader.cancel();
+
+        BlockingCall fresh = new BlockingCall();
+        fresh.mRelease.countDown();
+        assertEquals("page", execute(new RequestHandle(), fresh).get(5, TimeUnit.SECONDS));
+        assertEquals(1, fresh.mCalls.get());
+        assertEquals(0, mFlight.getSharedCount());
+
+        cancelled.mRelease.countDown();
+        assertNull(leading.get(5, TimeUnit.SECONDS));
+    }
+
+    private Future<String> execute(final RequestHandle caller, final SingleFlight.Call<String> call) {
+        return mExecutor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return mFlight.execute("key", caller, call);
+            }
+        });
+    }
+
+    private void awaitShared(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mFlight.getSharedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, mFlight.getSharedCount());
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.android.newsapp;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.widget.ImageView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowBitmap;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Memory and disk cache hits of {@link ThumbnailLoader}, reuse of released bitmaps
+ * and cancellation of recycled rows
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = ThumbnailLoaderTest.ShadowAllocatedBitmap.class)
+public class ThumbnailLoaderTest {
+
+    // Shadow decoder makes 100x100 images, decoded at view size they are 50x50 RGB_565
+    private static final int SIZE = 50;
+    private static final int BITMAP_BYTES = SIZE * SIZE * 2;
+    private static final long TIMEOUT = 5000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+    private File mDirectory;
+    private RecordingLoader mLoader;
+
+    /**
+     * Shadow bitmaps report no allocation, the loader sizes its caches by it
+     */
+    @Implements(Bitmap.class)
+    public static class ShadowAllocatedBitmap extends ShadowBitmap {
+        @Implementation
+        public int getAllocationByteCount() {
+            return getRowBytes() * getHeight();
+        }
+    }
+
+    /**
+     * Loader whose decodes fill the pooled bitmap like the platform decoder does
+     */
+    private static class RecordingLoader extends ThumbnailLoader {
+        final List<Bitmap> mInBitmaps = new ArrayList<>();
+        int mDecodes;
+
+        RecordingLoader(File directory, int memoryCacheBytes) {
+            super(directory, memoryCacheBytes);
+        }
+
+        @Override
+        Bitmap decodeFile(String path, BitmapFactory.Options options) {
+            Bitmap bitmap = super.decodeFile(path, options);
+            if (options.inJustDecodeBounds) return bitmap;
+            synchronized (this) {
+                mDecodes++;
+                mInBitmaps.add(options.inBitmap);
+            }
+            if (options.inBitmap != null) return options.inBitmap;
+            return Bitmap.createBitmap(bitmap.getWidth(), bitmap.getHeight(),
+                    options.inPreferredConfig);
+        }
+
+        synchronized int decodes() {
+            return mDecodes;
+        }
+
+        synchronized Bitmap lastInBitmap() {
+            return mInBitmaps.get(mInBitmaps.size() - 1);
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mDirectory = mFolder.newFolder("thumbnails");
+        // Four decoded thumbnails in memory, one of them kept for reuse
+        mLoader = new RecordingLoader(mDirectory, 4 * BITMAP_BYTES);
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        ShadowLooper.unPauseMainLooper();
+        mServer.shutdown();
+    }
+
+    @Test
+    public void memoryCacheHitIsShownRightAway() throws Exception {
+        mServer.enqueue(image());
+        ImageView first = view();
+        mLoader.cancel(awaitShown(mLoader.load(url("a"), first, SIZE, SIZE), first));
+
+        ImageView second = view();
+        mLoader.load(url("a"), second, SIZE, SIZE);
+
+        assertNotNull(bitmapOf(second));
+        assertEquals(1, mLoader.decodes());
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void diskCacheHitIsNotDownloadedAgain() throws Exception {
+        mServer.enqueue(image());
+        ImageView first = view();
+        awaitShown(mLoader.load(url("a"), first, SIZE, SIZE), first);
+
+        // Empty memory cache over the same directory, as after a restart
+        RecordingLoader restarted = new RecordingLoader(mDirectory, 4 * BITMAP_BYTES);
+        ImageView second = view();
+        awaitShown(restarted.load(url("a"), second, SIZE, SIZE), second);
+
+        assertEquals(1, restarted.decodes());
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void evictedBitmapIsReusedForNextDecode() throws Exception {
+        List<Bitmap> released = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            mServer.enqueue(image());
+            ImageView view = view();
+            ThumbnailLoader.Request request = mLoader.load(url("r" + i), view, SIZE, SIZE);
+            awaitShown(request, view);
+            released.add(bitmapOf(view));
+            // Row scrolled away, its bitmap stays in memory cache
+            mLoader.cancel(request);
+        }
+        // Fifth bitmap pushed the first one out of memory cache into the pool
+
+        mServer.enqueue(image());
+        ImageView view = view();
+        awaitShown(mLoader.load(url("next"), view, SIZE, SIZE), view);
+
+        assertSame(released.get(0), mLoader.lastInBitmap());
+        assertSame(released.get(0), bitmapOf(view));
+    }
+
+    @Test
+    public void shownBitmapIsNotReusedUntilItsRowIsRecycled() throws Exception {
+        mServer.enqueue(image());
+        ImageView shown = view();
+        ThumbnailLoader.Request shownRequest = mLoader.load(url("shown"), shown, SIZE, SIZE);
+        awaitShown(shownRequest, shown);
+        Bitmap bitmap = bitmapOf(shown);
+        for (int i = 0; i < 4; i++) {
+            mServer.enqueue(image());
+            ImageView view = view();
+            mLoader.cancel(awaitShown(mLoader.load(url("r" + i), view, SIZE, SIZE), view));
+        }
+
+        // Pushed out of memory cache but still on the screen
+        mServer.enqueue(image());
+        ImageView next = view();
+        mLoader.cancel(awaitShown(mLoader.load(url("next"), next, SIZE, SIZE), next));
+        assertNull(mLoader.lastInBitmap());
+
+        mLoader.cancel(shownRequest);
+        mServer.enqueue(image());
+        ImageView last = view();
+        awaitShown(mLoader.load(url("last"), last, SIZE, SIZE), last);
+        assertSame(bitmap, mLoader.lastInBitmap());
+    }
+
+    @Test
+    public void recycledRowClosesRunningDownload() throws Exception {
+        // Body that would take minutes to arrive
+        mServer.enqueue(new MockResponse()
+                .setBody(new Buffer().write(new byte[64 * 1024]))
+                .throttleBody(1024, 1, TimeUnit.SECONDS));
+        ImageView view = view();
+        ThumbnailLoader.Request request = mLoader.load(url("slow"), view, SIZE, SIZE);
+        assertNotNull(mServer.takeRequest(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertTrue("Download is running", awaitFiles(1));
+
+        mLoader.cancel(request);
+
+        assertTrue("Partial download is deleted", awaitFiles(0));
+        ShadowLooper.runUiThreadTasks();
+        assertNull(view.getDrawable());
+        assertEquals(0, mLoader.decodes());
+    }
+
+    @Test
+    public void recycledRowGetsNoBitmap() throws Exception {
+        // Download of the recycled row may have started already
+        mServer.enqueue(image());
+        mServer.enqueue(image());
+        ImageView recycled = view();
+        mLoader.cancel(mLoader.load(url("a"), recycled, SIZE, SIZE));
+
+        // Next row with the same image waits for its own decode
+        ImageView view = view();
+        awaitShown(mLoader.load(url("a"), view, SIZE, SIZE), view);
+        assertNull(recycled.getDrawable());
+        assertFalse(bitmapOf(view).isRecycled());
+    }
+
+    private ThumbnailLoader.Request awaitShown(ThumbnailLoader.Request request, ImageView view)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (view.getDrawable() == null) {
+            assertTrue("Thumbnail shown in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+            ShadowLooper.runUiThreadTasks();
+        }
+        return request;
+    }
+
+    /**
+     * @return true once the cache directory holds the given number of files
+     */
+    private boolean awaitFiles(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            File[] files = mDirectory.listFiles();
+            if (files != null && files.length == count) return true;
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    private String url(String name) {
+        return mServer.url("/" + name + ".jpg").toString();
+    }
+
+    private static MockResponse image() {
+        return new MockResponse().setBody(new Buffer().write(new byte[1024]));
+    }
+
+    private static ImageView view() {
+        return new ImageView(RuntimeEnvironment.application);
+    }
+
+    private static Bitmap bitmapOf(ImageView view) {
+        return ((BitmapDrawable) view.getDrawable()).getBitmap();
+    }
+}
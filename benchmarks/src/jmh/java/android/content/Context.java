@@ -0,0 +1,11 @@
+package android.content;
+
+import java.io.File;
+
+/**
+ * JVM stand-in of the framework class for benchmarks, only the files directory is used
+ */
+public abstract class Context {
+
+    public abstract File getFilesDir();
+}
@@ -0,0 +1,14 @@
+package android.os;
+
+/**
+ * JVM stand-in of the framework class for benchmarks
+ */
+public final class SystemClock {
+
+    private SystemClock() {
+    }
+
+    public static long elapsedRealtimeNanos() {
+        return System.nanoTime();
+    }
+}
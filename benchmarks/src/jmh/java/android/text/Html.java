@@ -0,0 +1,85 @@
+package android.text;
+
+/**
+ * JVM stand-in of the framework class for benchmarks: strips tags and decodes
+ * entities, no spans are built. Cheaper than the framework parser, so times of
+ * html decoding are a lower bound of the device ones.
+ */
+public class Html {
+
+    private Html() {
+    }
+
+    public static String fromHtml(String source) {
+        StringBuilder out = new StringBuilder(source.length());
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '<') {
+                int end = source.indexOf('>', i);
+                if (end < 0) break;
+                i = end + 1;
+            } else if (c == '&') {
+                int end = source.indexOf(';', i);
+                String decoded = end < 0 ? null : entity(source.substring(i + 1, end));
+                if (decoded == null) {
+                    out.append(c);
+                    i++;
+                } else {
+                    out.append(decoded);
+                    i = end + 1;
+                }
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    private static String entity(String name) {
+        if (name.startsWith("#x") || name.startsWith("#X")) {
+            return codePoint(name.substring(2), 16);
+        } else if (name.startsWith("#")) {
+            return codePoint(name.substring(1), 10);
+        }
+        switch (name) {
+            case "amp":
+                return "&";
+            case "lt":
+                return "<";
+            case "gt":
+                return ">";
+            case "quot":
+                return "\"";
+            case "apos":
+                return "'";
+            case "nbsp":
+                return " ";
+            case "ndash":
+                return "–";
+            case "mdash":
+                return "—";
+            case "lsquo":
+                return "‘";
+            case "rsquo":
+                return "’";
+            case "ldquo":
+                return "“";
+            case "rdquo":
+                return "”";
+            case "hellip":
+                return "…";
+            default:
+                return null;
+        }
+    }
+
+    private static String codePoint(String digits, int radix) {
+        try {
+            return new String(Character.toChars(Integer.parseInt(digits, radix)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package android.util;
+
+/**
+ * JVM stand-in of the framework class for benchmarks, errors go to stderr
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int e(String tag, String msg) {
+        System.err.println(tag + ": " + msg);
+        return 0;
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        System.err.println(tag + ": " + msg + ": " + tr);
+        return 0;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.android.newsapp;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic feed in the shape of Guardian API responses, the same for every run
+ */
+final class BenchmarkFeed {
+
+    private static final String[] SECTIONS = {"World news", "Science", "Football", "Business",
+            "Technology", "Opinion", "Sport", "Music"};
+    // Newest news of the feed, 2018-07-12T12:53:20Z
+    private static final long NEWEST = 1531400000000L;
+
+    private BenchmarkFeed() {
+    }
+
+    /**
+     * @return response body of a search page with the given number of results
+     */
+    static byte[] page(int page, int results) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"response\":{\"status\":\"ok\",\"userTier\":\"developer\",\"total\":20000,")
+                .append("\"startIndex\":").append((page - 1) * results + 1)
+                .append(",\"pageSize\":").append(results)
+                .append(",\"currentPage\":").append(page)
+                .append(",\"pages\":").append(20000 / results)
+                .append(",\"orderBy\":\"newest\",\"results\":[");
+        for (int i = 0; i < results; i++) {
+            int index = (page - 1) * results + i;
+            if (i > 0) json.append(',');
+            json.append("{\"id\":\"").append(path(index)).append('"')
+                    .append(",\"type\":\"article\",\"sectionId\":\"").append(sectionId(index))
+                    .append("\",\"sectionName\":\"").append(section(index))
+                    .append("\",\"webPublicationDate\":\"").append(date(index))
+                    .append("\",\"webTitle\":\"").append(title(index).replace("'", "&#39;"))
+                    .append("\",\"webUrl\":\"").append(url(index))
+                    .append("\",\"apiUrl\":\"https://content.guardianapis.com/")
+                    .append(path(index))
+                    .append("\",\"fields\":{\"trailText\":\"<strong>Update:</strong> ")
+                    .append(trailText(index))
+                    .append("\",\"byline\":\"").append(author(index))
+                    .append("\",\"thumbnail\":\"https://media.guim.co.uk/").append(index)
+                    .append("/500.jpg\"},\"isHosted\":false,\"pillarId\":\"pillar/news\"")
+                    .append(",\"pillarName\":\"News\"}");
+        }
+        json.append("]}}");
+        return json.toString().getBytes(Charset.forName("UTF-8"));
+    }
+
+    /**
+     * @return news of the feed from the given index, newest first
+     */
+    static List<News> news(int from, int count) {
+        List<News> news = new ArrayList<>(count);
+        for (int index = from; index < from + count; index++) {
+            news.add(new News(title(index), trailText(index), url(index), date(index),
+                    section(index), author(index), "https://media.guim.co.uk/" + index + "/500.jpg"));
+        }
+        return news;
+    }
+
+    static String date(int index) {
+        return News.formatDate(NEWEST - index * 7L * 60 * 1000);
+    }
+
+    private static String section(int index) {
+        return SECTIONS[index % SECTIONS.length];
+    }
+
+    private static String sectionId(int index) {
+        return section(index).toLowerCase().replace(' ', '-');
+    }
+
+    private static String path(int index) {
+        // A few news share a day of a section
+        return sectionId(index) + "/2018/jul/" + (12 - index / 200 % 12) + "/story-" + index;
+    }
+
+    private static String url(int index) {
+        return "https://www.theguardian.com/" + path(index);
+    }
+
+    private static String title(int index) {
+        return "Story " + index + ": what's behind the latest headline of the day";
+    }
+
+    private static String trailText(int index) {
+        return "A sentence or two about story " + index + " &ndash; what happened and why it matters";
+    }
+
+    private static String author(int index) {
+        return "Correspondent " + index % 150;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pagination of a session through {@link FeedCursor}, and id lookups of its
+ * {@link LongHashSet} against a boxed HashSet
+ */
+@State(Scope.Thread)
+public class FeedCursorBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"20", "200"})
+    public int mPages;
+
+    private final List<List<News>> mSession = new ArrayList<>();
+    private final LongHashSet mSeen = new LongHashSet();
+    private final Set<Long> mBoxedSeen = new HashSet<>();
+    private long[] mLookups;
+
+    @Setup
+    public void setUp() {
+        // Every page repeats the last news of the previous one, as if the feed moved by one
+        for (int page = 0; page < mPages; page++) {
+            mSession.add(BenchmarkFeed.news(Math.max(0, page * PAGE_SIZE - 1), PAGE_SIZE));
+        }
+        for (List<News> page : mSession) {
+            for (News news : page) {
+                mSeen.add(news.getId());
+                mBoxedSeen.add(news.getId());
+            }
+        }
+        // Half of the looked up ids are seen
+        List<News> lookups = BenchmarkFeed.news(mPages * PAGE_SIZE - PAGE_SIZE / 2, PAGE_SIZE);
+        mLookups = new long[lookups.size()];
+        for (int i = 0; i < mLookups.length; i++) mLookups[i] = lookups.get(i).getId();
+    }
+
+    @Benchmark
+    public int acceptSession() {
+        FeedCursor cursor = new FeedCursor(PAGE_SIZE);
+        int taken = 0;
+        for (int page = 0; page < mSession.size(); page++) {
+            taken += cursor.accept(page + 1, mSession.get(page)).size();
+        }
+        return taken;
+    }
+
+    @Benchmark
+    public int longHashSetContains() {
+        int found = 0;
+        for (long id : mLookups) {
+            if (mSeen.contains(id)) found++;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int boxedHashSetContains() {
+        int found = 0;
+        for (long id : mLookups) {
+            if (mBoxedSeen.contains(id)) found++;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+
+import com.google.gson.stream.JsonWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Rows kept on disk as a {@link FeedSnapshot} against the same rows kept as a JSON
+ * body in the API shape and read back with {@link NewsJsonParser}
+ */
+@State(Scope.Thread)
+public class FeedSnapshotBenchmark {
+
+    private static final String SECTION = "world";
+    // Rows of the first screen
+    private static final int SCREEN_ROWS = 10;
+
+    @Param({"10", "50", "200"})
+    public int mRows;
+
+    private File mDir;
+    private File mJsonFile;
+    private FeedSnapshot mSnapshot;
+    private List<News> mNews;
+
+    @Setup
+    public void setUp() throws IOException {
+        mDir = Files.createTempDirectory("snapshot").toFile();
+        mJsonFile = new File(mDir, "feed.json");
+        mSnapshot = new FeedSnapshot(new Context() {
+            @Override
+            public File getFilesDir() {
+                return mDir;
+            }
+        });
+        mNews = BenchmarkFeed.news(0, mRows);
+        mSnapshot.save(SECTION, mNews);
+        saveJson(mJsonFile, mNews);
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        mDir.delete();
+    }
+
+    @Benchmark
+    public void snapshotSave() {
+        mSnapshot.save(SECTION, mNews);
+    }
+
+    @Benchmark
+    public void jsonSave() throws IOException {
+        saveJson(mJsonFile, mNews);
+    }
+
+    /**
+     * Every row decoded, as a restore of the whole list
+     */
+    @Benchmark
+    public int snapshotLoadAll() {
+        List<News> rows = mSnapshot.load(SECTION);
+        int length = 0;
+        for (int i = 0; i < rows.size(); i++) length += rows.get(i).getmTitle().length();
+        return length;
+    }
+
+    /**
+     * Rows of the first screen decoded, the rest stay in the mapped file
+     */
+    @Benchmark
+    public int snapshotLoadScreen() {
+        List<News> rows = mSnapshot.load(SECTION);
+        int length = 0;
+        for (int i = 0; i < Math.min(SCREEN_ROWS, rows.size()); i++) {
+            length += rows.get(i).getmTitle().length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int jsonLoad() throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(mJsonFile));
+        try {
+            return new NewsJsonParser().parse(in).size();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Write the rows as a search response with the fields NewsJsonParser reads
+     */
+    private static void saveJson(File file, List<News> news) throws IOException {
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(new FileOutputStream(file),
+                Charset.forName("UTF-8")));
+        try {
+            writer.beginObject().name("response").beginObject();
+            writer.name("status").value("ok");
+            writer.name("results").beginArray();
+            for (News current : news) {
+                writer.beginObject();
+                writer.name("sectionName").value(current.getmCategory());
+                writer.name("webPublicationDate").value(current.getmDate());
+                writer.name("webTitle").value(current.getmTitle());
+                writer.name("webUrl").value(current.getmUrl());
+                writer.name("fields").beginObject();
+                writer.name("trailText").value(current.getmTrailText());
+                writer.name("byline").value(current.getmAuthor());
+                writer.name("thumbnail").value(current.getThumbnail());
+                writer.endObject();
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject().endObject();
+        } finally {
+            writer.close();
+        }
+    }
+}
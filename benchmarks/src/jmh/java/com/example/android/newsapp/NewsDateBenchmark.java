@@ -0,0 +1,44 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+/**
+ * Date codec of {@link News} against the SimpleDateFormat round trip of Utils.formattedDate
+ */
+@State(Scope.Thread)
+public class NewsDateBenchmark {
+
+    private final String mDate = BenchmarkFeed.date(17);
+    private final long mEpoch = News.parseDate(mDate);
+    private final DateFormat mApiFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    private final DateFormat mRowFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm");
+
+    @Benchmark
+    public long parseDate() {
+        return News.parseDate(mDate);
+    }
+
+    @Benchmark
+    public String formatDate() {
+        return News.formatDate(mEpoch);
+    }
+
+    @Benchmark
+    public String formatDisplayDate() {
+        return News.formatDisplayDate(mEpoch);
+    }
+
+    /**
+     * Row date from the API date, formats reused as in Utils.formattedDate
+     */
+    @Benchmark
+    public String simpleDateFormat() throws ParseException {
+        return mRowFormat.format(mApiFormat.parse(mDate));
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.android.newsapp;
+
+/**
+ * Stand-in of the app class for benchmarks, row display values need app resources
+ * and are not benchmarked
+ */
+public class NewsDisplay {
+}
@@ -0,0 +1,84 @@
+package com.example.android.newsapp;
+
+import android.text.Html;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming {@link NewsJsonParser} against the String + JSONObject parsing it replaced
+ */
+@State(Scope.Thread)
+public class NewsParserBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int mResults;
+
+    private byte[] mBody;
+
+    @Setup
+    public void setUp() {
+        mBody = BenchmarkFeed.page(1, mResults);
+    }
+
+    @Benchmark
+    public List<News> streaming() throws IOException {
+        return new NewsJsonParser().parse(new ByteArrayInputStream(mBody));
+    }
+
+    /**
+     * Body read into a String and parsed into a tree, as Utils.extractNews did
+     */
+    @Benchmark
+    public List<News> tree() throws IOException, JSONException {
+        String body = readFromStream(new ByteArrayInputStream(mBody));
+        List<News> news = new ArrayList<>();
+        JSONObject response = new JSONObject(body).getJSONObject("response");
+        if (!response.getString("status").equals("ok")) return news;
+        JSONArray results = response.getJSONArray("results");
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject current = results.getJSONObject(i);
+            JSONObject fields = current.getJSONObject("fields");
+            String author = fields.has("byline") ? fields.getString("byline") : "";
+            String trailText = fields.has("trailText")
+                    ? Html.fromHtml(fields.getString("trailText")).toString() : "";
+            String date = current.has("webPublicationDate")
+                    ? current.getString("webPublicationDate") : "";
+            news.add(new News(
+                    Html.fromHtml(current.getString("webTitle")).toString(),
+                    trailText,
+                    current.getString("webUrl"),
+                    date,
+                    current.getString("sectionName"),
+                    author));
+        }
+        return news;
+    }
+
+    private static String readFromStream(InputStream inputStream) throws IOException {
+        StringBuilder output = new StringBuilder();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+        String line = reader.readLine();
+        while (line != null) {
+            output.append(line);
+            line = reader.readLine();
+        }
+        return output.toString();
+    }
+}